@@ -0,0 +1,66 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds long headers crafted against the shapes of the former regular expression guards, each a long run of the
+ * characters one of their repetitions accepts, followed by a character that makes the match fail at the end.
+ * {@link #recognize()} bypasses the length cutoff, so its time divided by {@code length} should stay flat as the
+ * length grows, showing that recognition is linear. {@link #parse()} goes through the parser, which rejects anything
+ * longer than {@link RetryAfterParser#MAX_HEADER_LENGTH} before reading it, so its time should not grow at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdversarialBenchmark {
+
+    @Param({"digits", "decimal", "dayName", "asctimeSpaces", "zone"})
+    public String shape;
+
+    @Param({"64", "1024", "16384", "262144"})
+    public int length;
+
+    private String header;
+
+    private RetryAfterParser parser;
+
+    @Setup
+    public void setup() {
+        switch (shape) {
+            case "digits":
+                header = "1".repeat(length) + "x";
+                break;
+            case "decimal":
+                header = "1." + "0".repeat(length) + "x";
+                break;
+            case "dayName":
+                header = "x".repeat(length) + ", 02-Jan-03 01:23:45 ";
+                break;
+            case "asctimeSpaces":
+                header = "Thu" + " ".repeat(length / 2) + "Jan" + " ".repeat(length / 2) + "2";
+                break;
+            case "zone":
+                header = "02-Jan-03 01:23:45 " + "G".repeat(length) + "!";
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+        parser = RetryAfterParser.extended().withWarningInterval(Duration.ofDays(1));
+    }
+
+    @Benchmark
+    public int recognize() {
+        return RetryAfterScanner.recognize(header, 0, header.length(), RetryAfterScanner.EXTENDED);
+    }
+
+    @Benchmark
+    public long parse() {
+        return parser.parseMillis(header);
+    }
+}
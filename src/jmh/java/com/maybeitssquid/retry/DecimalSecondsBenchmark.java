@@ -0,0 +1,31 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fixed-point decimal seconds decoder with the {@link BigDecimal} conversion it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimalSecondsBenchmark {
+
+    @Param({"1.5", "0.001", "86400.123456789", "99999999999999999999.5"})
+    public String header;
+
+    @Benchmark
+    public long bigDecimal() {
+        return new BigDecimal(header).movePointRight(3).longValue();
+    }
+
+    @Benchmark
+    public long fixedPoint() {
+        return RetryAfterScanner.decimal(header, 0, header.length());
+    }
+}
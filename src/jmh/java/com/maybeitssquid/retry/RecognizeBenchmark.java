@@ -0,0 +1,46 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares recognizing each format with all formats enabled against recognizing it with only its own format enabled.
+ * The scanner dispatches on the header itself rather than trying formats in turn, so the two should cost the same
+ * whichever format a server sends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecognizeBenchmark {
+
+    @Param({
+            "120",
+            "1.5",
+            "Thu, 02 Jan 2003 01:23:45 GMT",
+            "Thursday, 02-Jan-03 01:23:45 GMT",
+            "Thu Jan  2 01:23:45 2003",
+            "2003-01-02T01:23:45Z"
+    })
+    public String header;
+
+    private int format;
+
+    @Setup
+    public void setup() {
+        this.format = RetryAfterScanner.recognize(header, 0, header.length(), RetryAfterScanner.EXTENDED);
+    }
+
+    @Benchmark
+    public int extended() {
+        return RetryAfterScanner.recognize(header, 0, header.length(), RetryAfterScanner.EXTENDED);
+    }
+
+    @Benchmark
+    public int only() {
+        return RetryAfterScanner.recognize(header, 0, header.length(), format);
+    }
+}
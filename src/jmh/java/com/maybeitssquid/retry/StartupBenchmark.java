@@ -0,0 +1,48 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of the first call to each factory in a fresh JVM, including loading and initializing the
+ * parser classes, as a short-lived batch job or serverless function sees it. Each fork measures a single call.
+ * Formatters are built only when a header in their format is first parsed, so {@code secondsOnly} with a seconds
+ * header should not pay for any date machinery, and a date header pays only for its own formatter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class StartupBenchmark {
+
+    @Param({"secondsOnly", "decimalSeconds", "strict", "extended"})
+    public String factory;
+
+    @Param({"120", "Thu, 02 Jan 2003 01:23:45 GMT", "Thursday, 02-Jan-03 01:23:45 GMT"})
+    public String header;
+
+    @Benchmark
+    public long firstCall() {
+        final RetryAfterParser parser;
+        switch (factory) {
+            case "secondsOnly":
+                parser = RetryAfterParser.secondsOnly();
+                break;
+            case "decimalSeconds":
+                parser = RetryAfterParser.decimalSeconds();
+                break;
+            case "strict":
+                parser = RetryAfterParser.strict();
+                break;
+            case "extended":
+                parser = RetryAfterParser.extended();
+                break;
+            default:
+                throw new IllegalArgumentException(factory);
+        }
+        return parser.parseMillis(header);
+    }
+}
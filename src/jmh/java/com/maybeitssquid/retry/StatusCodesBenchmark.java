@@ -0,0 +1,102 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the packed table of {@link RetryStatusCodes} with the {@code boolean[500]} table and exception-handled
+ * range check it replaced, for valid status codes and for bogus ones outside the table.
+ * <p>
+ * The {@code build} benchmarks construct a customized table. Run them with {@code -prof gc}, and for the boolean and
+ * unpooled packed tables {@code gc.alloc.rate.norm} is the footprint of each, about 520 bytes against 96.
+ * {@code buildPooledTable} is what the factories do: it builds the same packed table and looks it up in the pool,
+ * which finds an identical table, so the new one is garbage and nothing is retained. Its time over
+ * {@code buildPackedTable} is the cost of the pool on construction, paid to share one table among any number of
+ * instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatusCodesBenchmark {
+
+    /**
+     * The table and range check that {@link RetryStatusCodes} used before it was packed.
+     */
+    static final class BooleanTable {
+        private static final boolean[] DEFAULTS = new boolean[500];
+
+        private final boolean[] responses;
+
+        BooleanTable(final int... additional) {
+            this.responses = Arrays.copyOf(DEFAULTS, DEFAULTS.length);
+            for (int r : additional) {
+                this.responses[r - 100] = true;
+            }
+        }
+
+        boolean retries(final int code) {
+            try {
+                return this.responses[code - 100];
+            } catch (final IndexOutOfBoundsException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * A packed table built as the factories build one, without the pool.
+     */
+    static final class PackedTable {
+        private final long[] responses;
+
+        PackedTable(final int... additional) {
+            this.responses = new long[RetryStatusCodes.WORDS];
+            for (int r : additional) {
+                this.responses[r >>> 6] |= 1L << r;
+            }
+        }
+    }
+
+    @Param({"200", "503", "0", "-1", "999"})
+    public int status;
+
+    private BooleanTable booleans;
+
+    private RetryStatusCodes packed;
+
+    @Setup
+    public void setup() {
+        booleans = new BooleanTable(503);
+        packed = RetryStatusCodes.only(503);
+    }
+
+    @Benchmark
+    public boolean booleanTable() {
+        return booleans.retries(status);
+    }
+
+    @Benchmark
+    public boolean packedTable() {
+        return packed.retries(status);
+    }
+
+    @Benchmark
+    public Object buildBooleanTable() {
+        return new BooleanTable(503);
+    }
+
+    @Benchmark
+    public Object buildPackedTable() {
+        return new PackedTable(503);
+    }
+
+    @Benchmark
+    public Object buildPooledTable() {
+        return RetryStatusCodes.only(503);
+    }
+}
@@ -0,0 +1,38 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a retry decision with and without counting it, from several threads deciding on the same status code at
+ * once, the worst case for contention on a counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class StatusCountersBenchmark {
+
+    @Param({"200", "503"})
+    public int status;
+
+    private final RetryStatusCodes codes = RetryStatusCodes.idempotent();
+
+    private final RetryStatusCounters counters = new RetryStatusCounters();
+
+    @Benchmark
+    public boolean uncounted() {
+        return codes.retries(status);
+    }
+
+    @Benchmark
+    public boolean counted() {
+        final boolean retries = codes.retries(status);
+        counters.record(status, retries);
+        return retries;
+    }
+}
@@ -0,0 +1,56 @@
+package com.maybeitssquid.retry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the word-at-a-time digit decoder with the regular expression guard and {@link Long#parseLong(String)} it
+ * replaced, and with the character-at-a-time recognizer and conversion, for delay-seconds held as a {@link String}
+ * and as bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwarDigitsBenchmark {
+
+    private static final Pattern SECONDS = Pattern.compile("^\\d+$");
+
+    @Param({"0", "120", "3600", "86400", "12345678"})
+    public String header;
+
+    private AsciiSequence bytes;
+
+    @Setup
+    public void setup() {
+        // Padded so that the digits can be read as a whole word
+        final byte[] padded = (header + "        ").getBytes(StandardCharsets.ISO_8859_1);
+        bytes = AsciiSequence.of(padded, 0, header.length());
+    }
+
+    @Benchmark
+    public long guardAndParse() {
+        return SECONDS.matcher(header).matches() ? Long.parseLong(header) : -1L;
+    }
+
+    @Benchmark
+    public long scanner() {
+        return RetryAfterScanner.recognize(header, 0, header.length(), RetryAfterScanner.SECONDS) != 0
+                ? RetryAfterScanner.seconds(header, 0, header.length()) : -1L;
+    }
+
+    @Benchmark
+    public long swar() {
+        return SwarDigits.parse(header, 0, header.length());
+    }
+
+    @Benchmark
+    public long swarBytes() {
+        return SwarDigits.parse(bytes, 0, header.length());
+    }
+}
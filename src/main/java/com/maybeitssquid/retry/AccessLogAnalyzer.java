@@ -0,0 +1,354 @@
+package com.maybeitssquid.retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Offline tool that reads access logs of upstream responses, to find which {@code Retry-After} formats and waits
+ * servers actually send and how many responses {@link RetryStatusCodes} would retry.
+ * <p>
+ * Each line holds fields separated by a delimiter, tab by default, with the status code in one field, the
+ * {@code Retry-After} header in another and, optionally, the {@code Date} header of the response in a third. Fields are
+ * numbered from zero. A {@code Retry-After} field that is empty or {@code -} means the header was absent, while a line
+ * without a valid status code or without enough fields to hold the {@code Retry-After} is malformed. Waits for
+ * date-form headers are measured from the {@code Date} header, so they are counted in the histogram only when the
+ * response date is known.
+ * <p>
+ * Files are memory-mapped in chunks, and the chunks are read in parallel on a {@link ForkJoinPool}. Fields are decoded
+ * straight from the mapped bytes, without creating a {@link String} per line. Run from the command line with:
+ * <pre>{@code
+ * java com.maybeitssquid.retry.AccessLogAnalyzer <status field> <Retry-After field> [<Date field>] <file>...
+ * }</pre>
+ */
+public final class AccessLogAnalyzer {
+
+    /**
+     * The default number of bytes read by one task.
+     */
+    static final int CHUNK = 64 << 20;
+
+    /**
+     * Longest line that is read past the end of a chunk. A longer line that crosses the end of a chunk is counted as
+     * malformed without being parsed.
+     */
+    static final int MAX_LINE = 64 << 10;
+
+    /**
+     * Formats that the {@code Date} header may be in.
+     */
+    private static final int DATES = RetryAfterScanner.IMF_FIXDATE | RetryAfterScanner.RFC_850
+            | RetryAfterScanner.ASCTIME | RetryAfterScanner.ISO;
+
+    private final RetryStatusCodes codes;
+
+    private final int statusField;
+
+    private final int retryAfterField;
+
+    private final int dateField;
+
+    private final byte delimiter;
+
+    private final int chunk;
+
+    /**
+     * The last field read from each line.
+     */
+    private final int lastField;
+
+    AccessLogAnalyzer(final RetryStatusCodes codes, final int statusField, final int retryAfterField,
+                      final int dateField, final byte delimiter, final int chunk) {
+        if (statusField < 0 || retryAfterField < 0 || statusField == retryAfterField) {
+            throw new IllegalArgumentException("Status and Retry-After must be different fields, numbered from 0");
+        }
+        this.codes = codes;
+        this.statusField = statusField;
+        this.retryAfterField = retryAfterField;
+        this.dateField = dateField;
+        this.delimiter = delimiter;
+        this.chunk = chunk;
+        this.lastField = Math.max(Math.max(statusField, retryAfterField), dateField);
+    }
+
+    /**
+     * Creates an analyzer for tab-separated lines without a response date.
+     *
+     * @param codes           decides which status codes allow a retry
+     * @param statusField     index of the field holding the status code
+     * @param retryAfterField index of the field holding the {@code Retry-After} header
+     * @return an analyzer
+     * @throws IllegalArgumentException if a field index is negative, or both are the same
+     */
+    public static AccessLogAnalyzer of(final RetryStatusCodes codes, final int statusField,
+                                       final int retryAfterField) {
+        return new AccessLogAnalyzer(codes, statusField, retryAfterField, -1, (byte) '\t', CHUNK);
+    }
+
+    /**
+     * Creates an analyzer that also reads the response date, to measure waits for date-form headers.
+     *
+     * @param dateField index of the field holding the {@code Date} header
+     * @return an analyzer with the same settings, and a response date
+     * @throws IllegalArgumentException if the field is negative or already used
+     */
+    public AccessLogAnalyzer withDateField(final int dateField) {
+        if (dateField < 0 || dateField == this.statusField || dateField == this.retryAfterField) {
+            throw new IllegalArgumentException("Date must be a different field, numbered from 0");
+        }
+        return new AccessLogAnalyzer(this.codes, this.statusField, this.retryAfterField, dateField, this.delimiter,
+                this.chunk);
+    }
+
+    /**
+     * Creates an analyzer that separates fields with a different character.
+     *
+     * @param delimiter the ASCII character between fields
+     * @return an analyzer with the same settings, and a different delimiter
+     * @throws IllegalArgumentException if the delimiter is not ASCII or is a line break
+     */
+    public AccessLogAnalyzer withDelimiter(final char delimiter) {
+        if (delimiter > 0x7F || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("Delimiter must be an ASCII character other than a line break");
+        }
+        return new AccessLogAnalyzer(this.codes, this.statusField, this.retryAfterField, this.dateField,
+                (byte) delimiter, this.chunk);
+    }
+
+    /**
+     * Reads a log file.
+     *
+     * @param file the access log
+     * @return counts of the lines in the file
+     * @throws IOException if the file cannot be read
+     */
+    public AccessLogReport analyze(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return ForkJoinPool.commonPool().invoke(new Chunk(channel, 0L, channel.size()));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads the lines that start within a range of a file, splitting the range in half until it is at most one
+     * chunk long.
+     */
+    private final class Chunk extends RecursiveTask<AccessLogReport> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+
+        private Chunk(final FileChannel channel, final long from, final long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected AccessLogReport compute() {
+            if (this.to - this.from > chunk) {
+                final long middle = this.from + (this.to - this.from) / 2L;
+                final Chunk right = new Chunk(this.channel, middle, this.to);
+                right.fork();
+                return new Chunk(this.channel, this.from, middle).compute().merge(right.join());
+            }
+            try {
+                return read();
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private AccessLogReport read() throws IOException {
+            final AccessLogReport report = new AccessLogReport();
+            // Map from the byte before the range, to see whether the range starts a line, and past the end, to finish
+            // the last line that starts within the range
+            final long start = this.from == 0L ? 0L : this.from - 1L;
+            final long size = Math.min(this.channel.size(), this.to + MAX_LINE) - start;
+            if (size <= 0L) return report;
+            final MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            final AsciiSequence bytes = AsciiSequence.of(buffer);
+            final LineClock clock = new LineClock();
+            final int last = (int) (this.to - start);
+            final int end = (int) size;
+            // The mapping stops short of the end of the file, so a line without a break before then is too long
+            final boolean cut = start + size < this.channel.size();
+
+            int p = 0;
+            if (this.from != 0L) {
+                while (p < end && bytes.charAt(p) != '\n') p++;
+                p++;
+            }
+            while (p < last && p < end) {
+                int e = p;
+                while (e < end && bytes.charAt(e) != '\n') e++;
+                if (e == end && cut) {
+                    report.countLine();
+                    report.countMalformed();
+                    break;
+                }
+                line(bytes, p, e, clock, report);
+                p = e + 1;
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Counts one line.
+     *
+     * @param h      the mapped bytes
+     * @param start  index of the first character of the line
+     * @param end    index of the line break, or the end of the mapped bytes
+     * @param clock  reused to compute waits from the response date
+     * @param report the counts to update
+     */
+    private void line(final AsciiSequence h, final int start, int end, final LineClock clock,
+                      final AccessLogReport report) {
+        if (end > start && h.charAt(end - 1) == '\r') end--;
+        report.countLine();
+
+        int statusStart = -1;
+        int statusEnd = -1;
+        int retryAfterStart = -1;
+        int retryAfterEnd = -1;
+        int dateStart = -1;
+        int dateEnd = -1;
+        int field = 0;
+        int p = start;
+        while (p <= end && field <= this.lastField) {
+            int e = p;
+            while (e < end && h.charAt(e) != this.delimiter) e++;
+            if (field == this.statusField) {
+                statusStart = p;
+                statusEnd = e;
+            } else if (field == this.retryAfterField) {
+                retryAfterStart = p;
+                retryAfterEnd = e;
+            } else if (field == this.dateField) {
+                dateStart = p;
+                dateEnd = e;
+            }
+            field++;
+            p = e + 1;
+        }
+
+        final int status = statusStart < 0 ? -1 : status(h, statusStart, statusEnd);
+        // A line too short to hold the Retry-After field is bad data, not a response without the header
+        if (status < 0 || retryAfterStart < 0) {
+            report.countMalformed();
+            return;
+        }
+        report.countStatus(this.codes.retries(status));
+
+        while (retryAfterStart < retryAfterEnd && h.charAt(retryAfterStart) <= ' ') retryAfterStart++;
+        while (retryAfterEnd > retryAfterStart && h.charAt(retryAfterEnd - 1) <= ' ') retryAfterEnd--;
+        if (retryAfterStart == retryAfterEnd
+                || retryAfterEnd - retryAfterStart == 1 && h.charAt(retryAfterStart) == '-') {
+            report.countAbsent();
+            return;
+        }
+
+        final int format = RetryAfterScanner.recognize(h, retryAfterStart, retryAfterEnd,
+                RetryAfterScanner.EXTENDED);
+        if (format == 0) {
+            report.countUnrecognized();
+            return;
+        }
+        if ((format & RetryAfterScanner.ANY_SECONDS) == 0) {
+            clock.millis = dateStart < 0 ? RetryAfterScanner.NONE : date(h, dateStart, dateEnd);
+            if (clock.millis == RetryAfterScanner.NONE) {
+                report.countFormat(format);
+                report.countUndated();
+                return;
+            }
+        }
+        final long wait = RetryAfterScanner.millis(h, retryAfterStart, retryAfterEnd, format, clock);
+        if (wait == RetryAfterScanner.NONE) {
+            report.countUnrecognized();
+            return;
+        }
+        report.countFormat(format);
+        report.countWait(wait);
+    }
+
+    /**
+     * Reads a three-digit status code.
+     *
+     * @return the status code, or -1 if the field is not three digits
+     */
+    private static int status(final AsciiSequence h, final int start, final int end) {
+        if (end - start != 3) return -1;
+        int status = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = h.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            status = status * 10 + digit;
+        }
+        return status;
+    }
+
+    /**
+     * Reads the response date.
+     *
+     * @return the date in milliseconds since the epoch, or {@link RetryAfterScanner#NONE} if it is not a date
+     */
+    private static long date(final AsciiSequence h, int start, int end) {
+        while (start < end && h.charAt(start) <= ' ') start++;
+        while (end > start && h.charAt(end - 1) <= ' ') end--;
+        final int format = RetryAfterScanner.recognize(h, start, end, DATES);
+        return format == 0 ? RetryAfterScanner.NONE : RetryAfterScanner.epochMillis(format, h, start, end);
+    }
+
+    /**
+     * Clock set to the date of each response in turn.
+     */
+    private static final class LineClock implements InstantSource {
+        private long millis;
+
+        @Override
+        public long millis() {
+            return this.millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(this.millis);
+        }
+    }
+
+    /**
+     * Reads the access logs named on the command line and prints a report.
+     *
+     * @param args the status field, the {@code Retry-After} field, optionally the {@code Date} field, and the files
+     * @throws IOException if a file cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: AccessLogAnalyzer <status field> <Retry-After field> [<Date field>] <file>...");
+            System.exit(2);
+        }
+        AccessLogAnalyzer analyzer = of(RetryStatusCodes.idempotent(), Integer.parseInt(args[0]),
+                Integer.parseInt(args[1]));
+        int files = 2;
+        if (args.length > 3 && args[2].chars().allMatch(Character::isDigit)) {
+            analyzer = analyzer.withDateField(Integer.parseInt(args[2]));
+            files = 3;
+        }
+        final AccessLogReport report = new AccessLogReport();
+        for (int i = files; i < args.length; i++) {
+            report.merge(analyzer.analyze(Path.of(args[i])));
+        }
+        System.out.print(report);
+    }
+}
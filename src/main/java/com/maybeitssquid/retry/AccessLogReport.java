@@ -0,0 +1,221 @@
+package com.maybeitssquid.retry;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts of the status codes and {@code Retry-After} headers found by {@link AccessLogAnalyzer}. Waits are counted in
+ * a histogram with power-of-two buckets: bucket 0 holds waits of 0 ms, and bucket {@code i} holds waits from
+ * 2<sup>i-1</sup> ms up to but excluding 2<sup>i</sup> ms.
+ */
+public final class AccessLogReport {
+
+    /**
+     * The number of histogram buckets, enough for any non-negative {@code long} wait.
+     */
+    public static final int BUCKETS = 64;
+
+    /**
+     * Names of the formats, in the order of their flags in {@link RetryAfterScanner}.
+     */
+    private static final String[] FORMAT_NAMES = {"seconds", "decimal", "imf-fixdate", "rfc-850", "asctime", "iso"};
+
+    private long lines;
+
+    private long malformed;
+
+    private long retryable;
+
+    private long notRetryable;
+
+    private long absent;
+
+    private long unrecognized;
+
+    private long undated;
+
+    private final long[] formats = new long[FORMAT_NAMES.length];
+
+    private final long[] waits = new long[BUCKETS];
+
+    /**
+     * Gets the bucket for a wait.
+     *
+     * @param millis the wait in milliseconds, not negative
+     * @return the index of the histogram bucket
+     */
+    static int bucket(final long millis) {
+        return Long.SIZE - Long.numberOfLeadingZeros(millis);
+    }
+
+    void countLine() {
+        this.lines++;
+    }
+
+    void countMalformed() {
+        this.malformed++;
+    }
+
+    void countStatus(final boolean retries) {
+        if (retries) {
+            this.retryable++;
+        } else {
+            this.notRetryable++;
+        }
+    }
+
+    void countAbsent() {
+        this.absent++;
+    }
+
+    void countUnrecognized() {
+        this.unrecognized++;
+    }
+
+    void countUndated() {
+        this.undated++;
+    }
+
+    /**
+     * Counts a recognized header.
+     *
+     * @param format the format flag from {@link RetryAfterScanner}
+     */
+    void countFormat(final int format) {
+        this.formats[Integer.numberOfTrailingZeros(format)]++;
+    }
+
+    void countWait(final long millis) {
+        this.waits[bucket(millis)]++;
+    }
+
+    /**
+     * Adds the counts of another report to this one.
+     *
+     * @param other the report to add
+     * @return this report
+     */
+    AccessLogReport merge(final AccessLogReport other) {
+        this.lines += other.lines;
+        this.malformed += other.malformed;
+        this.retryable += other.retryable;
+        this.notRetryable += other.notRetryable;
+        this.absent += other.absent;
+        this.unrecognized += other.unrecognized;
+        this.undated += other.undated;
+        for (int i = 0; i < this.formats.length; i++) this.formats[i] += other.formats[i];
+        for (int i = 0; i < BUCKETS; i++) this.waits[i] += other.waits[i];
+        return this;
+    }
+
+    /**
+     * Gets the number of lines read.
+     *
+     * @return the number of lines
+     */
+    public long lines() {
+        return this.lines;
+    }
+
+    /**
+     * Gets the number of lines without a valid status code field or too short to hold the {@code Retry-After}
+     * field, which are not counted otherwise.
+     *
+     * @return the number of malformed lines
+     */
+    public long malformed() {
+        return this.malformed;
+    }
+
+    /**
+     * Gets the number of responses whose status code allows a retry.
+     *
+     * @return the number of retryable responses
+     */
+    public long retryable() {
+        return this.retryable;
+    }
+
+    /**
+     * Gets the number of responses whose status code does not allow a retry.
+     *
+     * @return the number of responses that are not retryable
+     */
+    public long notRetryable() {
+        return this.notRetryable;
+    }
+
+    /**
+     * Gets the number of responses without a {@code Retry-After} header.
+     *
+     * @return the number of responses without the header
+     */
+    public long absent() {
+        return this.absent;
+    }
+
+    /**
+     * Gets the number of {@code Retry-After} headers in none of the known formats.
+     *
+     * @return the number of unrecognized headers
+     */
+    public long unrecognized() {
+        return this.unrecognized;
+    }
+
+    /**
+     * Gets the number of date-form {@code Retry-After} headers without a response date to measure the wait from.
+     * They are counted by format, but not in the histogram.
+     *
+     * @return the number of dates without a response date
+     */
+    public long undated() {
+        return this.undated;
+    }
+
+    /**
+     * Gets the number of recognized {@code Retry-After} headers in each format.
+     *
+     * @return counts by format name, in a fixed order
+     */
+    public Map<String, Long> formats() {
+        final Map<String, Long> formats = new LinkedHashMap<>();
+        for (int i = 0; i < FORMAT_NAMES.length; i++) formats.put(FORMAT_NAMES[i], this.formats[i]);
+        return Collections.unmodifiableMap(formats);
+    }
+
+    /**
+     * Gets the histogram of waits.
+     *
+     * @return a copy of the {@link #BUCKETS} bucket counts
+     */
+    public long[] waits() {
+        return Arrays.copyOf(this.waits, BUCKETS);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder report = new StringBuilder();
+        row(report, "lines", this.lines);
+        row(report, "malformed", this.malformed);
+        row(report, "retryable", this.retryable);
+        row(report, "not retryable", this.notRetryable);
+        row(report, "no Retry-After", this.absent);
+        row(report, "unrecognized", this.unrecognized);
+        for (int i = 0; i < FORMAT_NAMES.length; i++) row(report, FORMAT_NAMES[i], this.formats[i]);
+        row(report, "undated", this.undated);
+        report.append("wait (ms)").append(System.lineSeparator());
+        for (int i = 0; i < BUCKETS; i++) {
+            if (this.waits[i] == 0L) continue;
+            row(report, i == 0 ? "0" : "[" + (1L << i - 1) + ", " + (i == 63 ? "max" : Long.toString(1L << i)) + ")",
+                    this.waits[i]);
+        }
+        return report.toString();
+    }
+
+    private static void row(final StringBuilder report, final String name, final long count) {
+        report.append(String.format("%-24s %,d%n", name, count));
+    }
+}
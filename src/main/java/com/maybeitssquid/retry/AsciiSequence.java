@@ -0,0 +1,136 @@
+package com.maybeitssquid.retry;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read-only {@link CharSequence} view of header bytes, decoded one byte per character as ISO-8859-1. The bytes are
+ * not copied, so the view reflects later changes to the underlying array or buffer.
+ */
+final class AsciiSequence implements CharSequence {
+
+    /**
+     * Reads eight bytes of an array as a little-endian {@code long}.
+     */
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * The backing array, or {@code null} when backed by a buffer without an accessible array.
+     */
+    private final byte[] array;
+
+    /**
+     * The backing buffer, used only when there is no array.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Index of the first character in the array or buffer.
+     */
+    private final int offset;
+
+    /**
+     * The number of characters.
+     */
+    private final int length;
+
+    private AsciiSequence(final byte[] array, final ByteBuffer buffer, final int offset, final int length) {
+        this.array = array;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates a view of part of an array.
+     *
+     * @param bytes  the header bytes
+     * @param offset index of the first byte
+     * @param length the number of bytes
+     * @return view of the bytes
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     */
+    static AsciiSequence of(final byte[] bytes, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            throw new IndexOutOfBoundsException("Range [" + offset + ", " + offset + " + " + length
+                    + ") out of bounds for length " + bytes.length);
+        }
+        return new AsciiSequence(bytes, null, offset, length);
+    }
+
+    /**
+     * Creates a view of the remaining bytes of a buffer. The position and limit of the buffer are not changed.
+     *
+     * @param bytes the header bytes between position and limit
+     * @return view of the bytes
+     */
+    static AsciiSequence of(final ByteBuffer bytes) {
+        if (bytes.hasArray()) {
+            return new AsciiSequence(bytes.array(), null, bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        }
+        return new AsciiSequence(null, bytes, bytes.position(), bytes.remaining());
+    }
+
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.length);
+        }
+        final int i = this.offset + index;
+        return (char) ((this.array != null ? this.array[i] : this.buffer.get(i)) & 0xFF);
+    }
+
+    /**
+     * Packs up to eight characters into a word for {@link SwarDigits}, the first in the lowest byte. Reads all eight
+     * bytes at once when the array or buffer extends far enough, and otherwise one byte at a time.
+     *
+     * @param start index of the first character
+     * @param end   index after the last character, at most eight after {@code start}
+     * @return the packed characters, with any unused high bytes zero
+     */
+    long pack(final int start, final int end) {
+        final int i = this.offset + start;
+        final int n = end - start;
+        final long word;
+        if (this.array != null && i <= this.array.length - Long.BYTES) {
+            word = (long) LONGS.get(this.array, i);
+        } else if (this.array == null && i <= this.buffer.limit() - Long.BYTES) {
+            final long raw = this.buffer.getLong(i);
+            word = this.buffer.order() == ByteOrder.LITTLE_ENDIAN ? raw : Long.reverseBytes(raw);
+        } else {
+            long packed = 0L;
+            for (int k = i + n - 1; k >= i; k--) {
+                packed = packed << 8 | (this.array != null ? this.array[k] : this.buffer.get(k)) & 0xFF;
+            }
+            return packed;
+        }
+        return n == Long.BYTES ? word : word & (1L << (n << 3)) - 1L;
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length "
+                    + this.length);
+        }
+        return new AsciiSequence(this.array, this.buffer, this.offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        if (this.array != null) {
+            return new String(this.array, this.offset, this.length, StandardCharsets.ISO_8859_1);
+        }
+        final byte[] copy = new byte[this.length];
+        this.buffer.get(this.offset, copy);
+        return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+}
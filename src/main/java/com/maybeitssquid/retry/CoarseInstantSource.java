@@ -0,0 +1,151 @@
+package com.maybeitssquid.retry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Clock that reads the time once per tick and returns the cached value in between, so that converting many
+ * date-form {@code Retry-After} headers to waits does not read the system clock for each one. The cached time is
+ * updated by a shared daemon thread, and may lag the true time by up to one tick plus scheduling delay.
+ * <p>
+ * Dates in {@code Retry-After} headers have a resolution of one second, so a tick of a fraction of a second loses
+ * little. A shorter tick tracks the time more closely but wakes the updating thread more often, and a tick of a
+ * millisecond or so costs more than the clock reads it saves. The cached time only ever lags, so a coarse tick makes
+ * waits slightly longer, never shorter, than the server asked. Pass the clock to
+ * {@link RetryAfterParser#strict(InstantSource)} or {@link RetryAfterParser#extended(InstantSource)}:
+ * <pre>{@code
+ * RetryAfterParser parser = RetryAfterParser.extended(CoarseInstantSource.system());
+ * }</pre>
+ * A clock keeps being updated until it is {@link #close() closed}, except for the shared {@link #system()} clock,
+ * which is updated for the life of the JVM and ignores {@link #close()}.
+ */
+public final class CoarseInstantSource implements InstantSource, AutoCloseable {
+
+    /**
+     * The default tick, a tenth of the one-second resolution of dates in {@code Retry-After} headers.
+     */
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(100);
+
+    /**
+     * Thread that updates every clock, created when the first clock is.
+     */
+    private static final class Updater {
+        private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "coarse-instant-source");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Shared wall-clock instance with the default tick, created when first used.
+     */
+    private static final class Shared {
+        private static final CoarseInstantSource INSTANCE =
+                start(System::currentTimeMillis, DEFAULT_TICK, false);
+    }
+
+    private final LongSupplier source;
+
+    /**
+     * Whether closing the clock stops it, which is false for the shared clock.
+     */
+    private final boolean closeable;
+
+    private volatile long millis;
+
+    private volatile ScheduledFuture<?> updates;
+
+    /**
+     * Creates a clock that is updated only by {@link #update()}.
+     *
+     * @param source the time in milliseconds since the epoch
+     */
+    CoarseInstantSource(final LongSupplier source) {
+        this(source, true);
+    }
+
+    private CoarseInstantSource(final LongSupplier source, final boolean closeable) {
+        this.source = source;
+        this.closeable = closeable;
+        this.millis = source.getAsLong();
+    }
+
+    private static CoarseInstantSource start(final LongSupplier source, final Duration tick, final boolean closeable) {
+        final long nanos = tick.toNanos();
+        if (nanos <= 0L) throw new IllegalArgumentException("Tick must be positive, was " + tick);
+        final CoarseInstantSource clock = new CoarseInstantSource(source, closeable);
+        clock.updates = Updater.EXECUTOR.scheduleAtFixedRate(clock::update, nanos, nanos, TimeUnit.NANOSECONDS);
+        return clock;
+    }
+
+    /**
+     * Returns a clock that follows the system clock, including any adjustments made to it.
+     *
+     * @param tick how often to read the system clock
+     * @return a new clock
+     * @throws IllegalArgumentException if the tick is not positive
+     */
+    public static CoarseInstantSource wall(final Duration tick) {
+        return start(System::currentTimeMillis, tick, true);
+    }
+
+    /**
+     * Returns a clock that starts at the system time, and then advances with {@link System#nanoTime()}.
+     * It never goes backwards when the system clock is adjusted, but drifts from the system clock by however much it
+     * is adjusted while the clock is in use.
+     *
+     * @param tick how often to read the time
+     * @return a new clock
+     * @throws IllegalArgumentException if the tick is not positive
+     */
+    public static CoarseInstantSource monotonic(final Duration tick) {
+        final long epochMillis = System.currentTimeMillis();
+        final long nanos = System.nanoTime();
+        return start(() -> epochMillis + (System.nanoTime() - nanos) / 1_000_000L, tick, true);
+    }
+
+    /**
+     * Returns a shared clock that follows the system clock with a tick of {@link #DEFAULT_TICK}. Closing it has no
+     * effect, so it can be used in a try-with-resources statement like any other clock.
+     *
+     * @return the shared clock
+     */
+    public static CoarseInstantSource system() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Reads the time from the source into the cache.
+     */
+    void update() {
+        this.millis = this.source.getAsLong();
+    }
+
+    @Override
+    public long millis() {
+        return this.millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(this.millis);
+    }
+
+    /**
+     * Stops updating the clock. After closing, the clock always returns the last time read. Closing the shared
+     * {@link #system()} clock has no effect.
+     */
+    @Override
+    public void close() {
+        if (!this.closeable) return;
+        final ScheduledFuture<?> updates = this.updates;
+        if (updates != null) updates.cancel(false);
+    }
+}
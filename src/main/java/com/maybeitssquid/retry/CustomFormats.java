@@ -0,0 +1,67 @@
+package com.maybeitssquid.retry;
+
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Custom formats of a parser, arranged by the first character of a header so that each header is offered only to the
+ * formats that can start with its first character.
+ */
+final class CustomFormats {
+
+    private static final RetryAfterFormat[] NO_FORMATS = {};
+
+    /**
+     * The formats that can start with each ASCII character.
+     */
+    private final RetryAfterFormat[][] leads = new RetryAfterFormat[128][];
+
+    /**
+     * All the formats, in the order they were added, for headers that do not start with an ASCII character.
+     */
+    private final RetryAfterFormat[] formats;
+
+    /**
+     * Arranges formats by first character.
+     *
+     * @param formats the formats, in the order they should be tried
+     */
+    CustomFormats(final List<RetryAfterFormat> formats) {
+        this.formats = formats.toArray(NO_FORMATS);
+        final List<RetryAfterFormat> lead = new ArrayList<>(formats.size());
+        for (char c = 0; c < this.leads.length; c++) {
+            lead.clear();
+            for (final RetryAfterFormat format : this.formats) {
+                if (format.canStartWith(c)) lead.add(format);
+            }
+            this.leads[c] = lead.isEmpty() ? NO_FORMATS : lead.toArray(NO_FORMATS);
+        }
+    }
+
+    /**
+     * Offers a header to each format that can start with its first character, in turn, until one accepts it.
+     *
+     * @param h     the header value
+     * @param start index of the first character of the value, after any leading whitespace
+     * @param end   index after the last character of the value, before any trailing whitespace
+     * @param clock the clock to compute offsets when the header is a date
+     * @return the wait in milliseconds, or {@link RetryAfterScanner#NONE} if no format accepted the header
+     */
+    long millis(final CharSequence h, final int start, final int end, final InstantSource clock) {
+        final char c = h.charAt(start);
+        if (c < this.leads.length) {
+            for (final RetryAfterFormat format : this.leads[c]) {
+                final long millis = format.millis(h, start, end, clock);
+                if (millis != RetryAfterScanner.NONE) return millis;
+            }
+        } else {
+            for (final RetryAfterFormat format : this.formats) {
+                if (!format.canStartWith(c)) continue;
+                final long millis = format.millis(h, start, end, clock);
+                if (millis != RetryAfterScanner.NONE) return millis;
+            }
+        }
+        return RetryAfterScanner.NONE;
+    }
+}
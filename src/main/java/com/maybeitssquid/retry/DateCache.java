@@ -0,0 +1,115 @@
+package com.maybeitssquid.retry;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded cache of date-form {@code Retry-After} headers and the instants they denote. During a throttling event a
+ * server tends to send the same date to every client, so the date only has to be parsed once.
+ * <p>
+ * The cache is direct-mapped: each header hashes to a single slot, and a new entry simply replaces whatever was in its
+ * slot. Entries are immutable, so reads need no locks, and the number of slots and the length of the headers stored
+ * are both fixed, which bounds memory use.
+ */
+final class DateCache {
+
+    /**
+     * Shortest header that any of the date formats can match, e.g. "Jan 2 1:23 2003".
+     */
+    static final int MIN_LENGTH = 15;
+
+    /**
+     * Longest header that is stored. Dates in any of the standard formats are well under this length.
+     */
+    static final int MAX_LENGTH = 64;
+
+    /**
+     * Cached header and the date it denotes.
+     */
+    private static final class Entry {
+        private final String header;
+        private final long epochMillis;
+
+        private Entry(final String header, final long epochMillis) {
+            this.header = header;
+            this.epochMillis = epochMillis;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> entries;
+
+    private final int mask;
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the number of entries, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or is too large
+     */
+    DateCache(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Cache capacity must be from 1 to 2^30, was " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new AtomicReferenceArray<>(Math.max(size, 1));
+        this.mask = this.entries.length() - 1;
+    }
+
+    /**
+     * Gets the number of entries the cache can hold.
+     *
+     * @return the number of entries
+     */
+    int capacity() {
+        return this.entries.length();
+    }
+
+    /**
+     * Looks up a header.
+     *
+     * @param h     the header value
+     * @param start index of the first character of the value
+     * @param end   index after the last character of the value
+     * @return the date in milliseconds since the epoch, or {@link RetryAfterScanner#NONE} if it is not cached
+     */
+    long get(final CharSequence h, final int start, final int end) {
+        final int length = end - start;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return RetryAfterScanner.NONE;
+        final Entry entry = this.entries.get(slot(hash(h, start, end)));
+        if (entry == null || entry.header.length() != length) return RetryAfterScanner.NONE;
+        for (int i = 0; i < length; i++) {
+            if (entry.header.charAt(i) != h.charAt(start + i)) return RetryAfterScanner.NONE;
+        }
+        return entry.epochMillis;
+    }
+
+    /**
+     * Stores a header, replacing any other header in the same slot.
+     *
+     * @param h           the header value
+     * @param start       index of the first character of the value
+     * @param end         index after the last character of the value
+     * @param epochMillis the date in milliseconds since the epoch
+     */
+    void put(final CharSequence h, final int start, final int end, final long epochMillis) {
+        final int length = end - start;
+        if (length < MIN_LENGTH || length > MAX_LENGTH) return;
+        // Copy the key, because the header may be a view of a reusable buffer
+        final String header = h.subSequence(start, end).toString();
+        this.entries.lazySet(slot(header.hashCode()), new Entry(header, epochMillis));
+    }
+
+    /**
+     * Same as {@link String#hashCode()} of the value, without creating the string.
+     */
+    private static int hash(final CharSequence h, final int start, final int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + h.charAt(i);
+        }
+        return hash;
+    }
+
+    private int slot(final int hash) {
+        return (hash ^ hash >>> 16) & this.mask;
+    }
+}
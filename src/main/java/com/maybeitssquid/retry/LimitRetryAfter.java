@@ -5,7 +5,9 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * Predicate to prevent a retry if there is a {@code Retry-After} header that specifies too long a wait interval.
@@ -13,9 +15,19 @@ import java.util.function.Predicate;
 public class LimitRetryAfter implements Predicate<HttpServletResponse> {
 
     /**
-     * The parser to read Retry-After headers from the response.
+     * The parser to read Retry-After headers from the response, in milliseconds.
      */
-    private final Function<HttpServletResponse, Optional<Duration>> parser;
+    private final ToLongFunction<HttpServletResponse> parser;
+
+    /**
+     * The memo the parser remembers results in, or {@code null} if results are not shared.
+     */
+    private final RetryAfterMemo memo;
+
+    /**
+     * The status codes whose {@code Retry-After} header is read.
+     */
+    private final IntPredicate statuses;
 
     /**
      * The maximum wait interval
@@ -23,14 +35,40 @@ public class LimitRetryAfter implements Predicate<HttpServletResponse> {
     private final Duration maximum;
 
     /**
-     * Creates a predicate to limit intervals requested by an HTTP Retry-After header.
+     * The maximum wait interval, truncated to whole milliseconds. Parsed waits are whole milliseconds, with any
+     * fraction from a custom parser rounded up, so a wait over a whole-millisecond maximum by any amount is refused.
+     */
+    private final long maximumMillis;
+
+    /**
+     * Creates a predicate to limit intervals requested by an HTTP Retry-After header. The header is only read for
+     * {@linkplain RetryStatusCodes#retryAfterStatuses() status codes where it is meaningful}.
      *
      * @param maximum the maximum wait interval
      * @param parser  the parser for the headers
      */
     public LimitRetryAfter(final Duration maximum, final Function<HttpServletResponse, Optional<Duration>> parser) {
-        this.parser = parser;
+        this(maximum, parser, RetryStatusCodes.retryAfterStatuses()::retries);
+    }
+
+    /**
+     * Creates a predicate to limit intervals requested by an HTTP Retry-After header, read only for responses whose
+     * status code passes a filter. Any other response is allowed without reading its headers. If the parser is a
+     * {@link RetryAfterMemo}, each result is remembered for the wait function that shares the memo, and forgotten if
+     * the retry is refused.
+     *
+     * @param maximum  the maximum wait interval
+     * @param parser   the parser for the headers
+     * @param statuses the status codes whose header is read, such as {@link RetryStatusCodes#retries(int)}
+     */
+    public LimitRetryAfter(final Duration maximum, final Function<HttpServletResponse, Optional<Duration>> parser,
+                           final IntPredicate statuses) {
+        this.statuses = statuses;
+        this.memo = parser instanceof RetryAfterMemo ? (RetryAfterMemo) parser : null;
+        this.parser = this.memo != null ? this.memo::remember : RetryAfterParser.toMillis(parser);
         this.maximum = maximum;
+        this.maximumMillis = maximum.isNegative() ? -1L
+                : maximum.compareTo(Duration.ofMillis(Long.MAX_VALUE)) >= 0 ? Long.MAX_VALUE : maximum.toMillis();
     }
 
     /**
@@ -72,6 +110,10 @@ public class LimitRetryAfter implements Predicate<HttpServletResponse> {
      */
     @Override
     public boolean test(final HttpServletResponse t) {
-        return this.parser.apply(t).map(ra -> ra.compareTo(getMaximum()) < 1).orElse(true);
+        if (t != null && !this.statuses.test(t.getStatus())) return true;
+        final long retryAfter = this.parser.applyAsLong(t);
+        if (retryAfter == RetryAfterParser.NONE || retryAfter <= this.maximumMillis) return true;
+        if (this.memo != null) this.memo.forget(t);
+        return false;
     }
 }
@@ -0,0 +1,77 @@
+package com.maybeitssquid.retry;
+
+/**
+ * Quota reported by a server in {@code RateLimit} or {@code X-RateLimit} headers, as read by {@link RateLimitParser}.
+ */
+public final class RateLimit {
+
+    /**
+     * Value of a field the server did not report.
+     */
+    public static final long UNKNOWN = -1L;
+
+    private final long remaining;
+
+    private final long limit;
+
+    private final long resetMillis;
+
+    /**
+     * Creates a quota.
+     *
+     * @param remaining   the number of requests remaining in the current window
+     * @param limit       the number of requests allowed in a window, or {@link #UNKNOWN}
+     * @param resetMillis milliseconds until the quota resets, or {@link #UNKNOWN}
+     */
+    public RateLimit(final long remaining, final long limit, final long resetMillis) {
+        this.remaining = remaining;
+        this.limit = limit;
+        this.resetMillis = resetMillis;
+    }
+
+    /**
+     * Gets the number of requests remaining in the current window.
+     *
+     * @return the remaining quota
+     */
+    public long remaining() {
+        return this.remaining;
+    }
+
+    /**
+     * Gets the number of requests allowed in a window.
+     *
+     * @return the quota, or {@link #UNKNOWN}
+     */
+    public long limit() {
+        return this.limit;
+    }
+
+    /**
+     * Gets the time until the quota resets, measured from when the response was parsed.
+     *
+     * @return milliseconds until the quota resets, or {@link #UNKNOWN}
+     */
+    public long resetMillis() {
+        return this.resetMillis;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RateLimit)) return false;
+        final RateLimit other = (RateLimit) o;
+        return this.remaining == other.remaining && this.limit == other.limit && this.resetMillis == other.resetMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(this.remaining) * 961 + Long.hashCode(this.limit) * 31 + Long.hashCode(this.resetMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit[remaining=" + this.remaining + ", limit=" + this.limit + ", resetMillis="
+                + this.resetMillis + "]";
+    }
+}
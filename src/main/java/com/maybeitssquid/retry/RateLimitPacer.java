@@ -0,0 +1,232 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.InstantSource;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.maybeitssquid.retry.RateLimit.UNKNOWN;
+
+/**
+ * Slows requests down as the quota reported in rate limit headers runs low, so that the remaining requests are spread
+ * over the time until the quota resets instead of being spent at once and answered with
+ * {@code 429 Too Many Requests}.
+ * <p>
+ * Each response is {@linkplain #observe(HttpServletResponse) observed} to record the latest quota. While more than a
+ * threshold fraction of the limit remains, requests are not delayed. Below it, requests are spaced evenly over the
+ * time until the reset, and once the quota is exhausted, requests wait for the reset. If the server does not report a
+ * limit, requests are spaced whenever a quota and reset are reported. Requests are never delayed when the server does
+ * not report when the quota resets.
+ * <p>
+ * A pacer is thread-safe, and is meant to be shared by all the clients of a service so that concurrent requests are
+ * given distinct slots.
+ */
+public final class RateLimitPacer {
+
+    /**
+     * The default fraction of the limit below which requests are paced.
+     */
+    public static final double DEFAULT_THRESHOLD = 0.2;
+
+    /**
+     * The latest quota, with the reset as a time.
+     */
+    private static final class Snapshot {
+        private final long remaining;
+        private final long limit;
+        private final long resetAt;
+
+        private Snapshot(final long remaining, final long limit, final long resetAt) {
+            this.remaining = remaining;
+            this.limit = limit;
+            this.resetAt = resetAt;
+        }
+    }
+
+    private final Function<HttpServletResponse, Optional<RateLimit>> parser;
+
+    private final double threshold;
+
+    private final InstantSource clock;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * The earliest time the next paced request may be sent.
+     */
+    private final AtomicLong nextSlot = new AtomicLong(Long.MIN_VALUE);
+
+    private RateLimitPacer(final Function<HttpServletResponse, Optional<RateLimit>> parser, final double threshold,
+                           final InstantSource clock) {
+        if (!(threshold >= 0.0 && threshold <= 1.0)) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1: " + threshold);
+        }
+        this.parser = parser;
+        this.threshold = threshold;
+        this.clock = clock;
+    }
+
+    /**
+     * Creates a pacer.
+     *
+     * @param parser    the parser for rate limit headers, such as {@link RateLimitParser#standard(InstantSource)}
+     * @param threshold the fraction of the limit below which requests are paced, from 0 to 1
+     * @param clock     the clock to time the reset. Useful for testing.
+     * @return pacer for the quota reported by the parser
+     */
+    public static RateLimitPacer of(final Function<HttpServletResponse, Optional<RateLimit>> parser,
+                                    final double threshold, final InstantSource clock) {
+        return new RateLimitPacer(parser, threshold, clock);
+    }
+
+    /**
+     * Creates a pacer that uses the system clock.
+     *
+     * @param parser    the parser for rate limit headers, such as {@link RateLimitParser#standard()}
+     * @param threshold the fraction of the limit below which requests are paced, from 0 to 1
+     * @return pacer for the quota reported by the parser
+     */
+    public static RateLimitPacer of(final Function<HttpServletResponse, Optional<RateLimit>> parser,
+                                    final double threshold) {
+        return of(parser, threshold, InstantSource.system());
+    }
+
+    /**
+     * Creates a pacer that uses the system clock and paces requests below {@link #DEFAULT_THRESHOLD} of the limit.
+     *
+     * @param parser the parser for rate limit headers, such as {@link RateLimitParser#standard()}
+     * @return pacer for the quota reported by the parser
+     */
+    public static RateLimitPacer of(final Function<HttpServletResponse, Optional<RateLimit>> parser) {
+        return of(parser, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a pacer for all the supported rate limit headers that uses the system clock and paces requests below
+     * {@link #DEFAULT_THRESHOLD} of the limit.
+     *
+     * @return pacer for rate limit headers
+     */
+    public static RateLimitPacer standard() {
+        return of(RateLimitParser.standard());
+    }
+
+    /**
+     * Records the quota reported in a response, if any. A response without rate limit headers leaves the previous
+     * quota in place.
+     *
+     * @param response the HTTP response
+     * @return the spacing between requests in milliseconds, as from {@link #spacingMillis()}
+     */
+    public long observe(final HttpServletResponse response) {
+        if (response != null) {
+            this.parser.apply(response).ifPresent(this::record);
+        }
+        return spacingMillis();
+    }
+
+    /**
+     * Records a quota.
+     *
+     * @param limit the quota
+     * @return the spacing between requests in milliseconds, as from {@link #spacingMillis()}
+     */
+    public long observe(final RateLimit limit) {
+        record(limit);
+        return spacingMillis();
+    }
+
+    private void record(final RateLimit limit) {
+        final long reset = limit.resetMillis();
+        final long resetAt;
+        if (reset == UNKNOWN) {
+            resetAt = UNKNOWN;
+        } else {
+            final long now = this.clock.millis();
+            resetAt = reset > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + reset;
+        }
+        this.snapshot.set(new Snapshot(limit.remaining(), limit.limit(), resetAt));
+    }
+
+    /**
+     * Gets the spacing between requests needed to make the latest quota last until it resets.
+     *
+     * @return the spacing in milliseconds, the time until the reset if the quota is exhausted, or 0 if requests need
+     * not be delayed
+     */
+    public long spacingMillis() {
+        return spacingMillis(this.snapshot.get(), this.clock.millis());
+    }
+
+    /**
+     * Gets the spacing for one quota at one time.
+     *
+     * @param s   the quota, or {@code null} if none has been observed
+     * @param now the current time in milliseconds since the epoch
+     * @return the spacing in milliseconds, as from {@link #spacingMillis()}
+     */
+    private long spacingMillis(final Snapshot s, final long now) {
+        if (s == null || s.resetAt == UNKNOWN) return 0L;
+        final long wait = s.resetAt - now;
+        if (wait <= 0L) return 0L;
+        if (s.remaining <= 0L) return wait;
+        if (s.limit > 0L && s.remaining >= this.threshold * s.limit) return 0L;
+        return wait / (s.remaining + 1L);
+    }
+
+    /**
+     * Claims the next slot to send a request. Concurrent callers are given successive slots, each
+     * {@link #spacingMillis()} after the last. When the quota is exhausted, every caller waits for the reset.
+     *
+     * @return milliseconds to wait before sending the request
+     */
+    public long acquire() {
+        // Read the quota and the time once, so the spacing and the slot agree even if a new quota is observed
+        final Snapshot s = this.snapshot.get();
+        if (s == null) return 0L;
+        final long now = this.clock.millis();
+        final long spacing = spacingMillis(s, now);
+        if (spacing == 0L) return 0L;
+        if (s.remaining <= 0L) return spacing;
+        while (true) {
+            final long next = this.nextSlot.get();
+            final long slot = Math.max(now, next);
+            if (this.nextSlot.compareAndSet(next, slot + spacing)) return slot - now;
+        }
+    }
+
+    /**
+     * Waits for the next slot to send a request.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void pause() throws InterruptedException {
+        final long wait = acquire();
+        if (wait > 0L) Thread.sleep(wait);
+    }
+
+    /**
+     * Paces a call that returns an HTTP response. The decorated call waits for its slot, makes the call, and observes
+     * the response. If the thread is interrupted while waiting, the call is made at once, with the thread's interrupt
+     * status set.
+     *
+     * @param call the call to pace
+     * @return the paced call
+     */
+    public Supplier<HttpServletResponse> decorate(final Supplier<HttpServletResponse> call) {
+        return () -> {
+            try {
+                pause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            final HttpServletResponse response = call.get();
+            observe(response);
+            return response;
+        };
+    }
+}
@@ -0,0 +1,335 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.maybeitssquid.retry.RateLimit.UNKNOWN;
+
+/**
+ * Parses the quota a server reports in rate limit headers, so that a client can slow down before it is refused with
+ * {@code 429 Too Many Requests}. Three families of headers are understood, and the first one present is used:
+ *
+ * <ol>
+ *     <li>The combined {@code RateLimit} header of the IETF draft, either as structured fields such as
+ *     {@code "default";r=50;t=30}, or in the earlier form {@code limit=100, remaining=50, reset=30}. The limit is
+ *     taken from a matching {@code RateLimit-Policy} header such as {@code "default";q=100;w=60} or
+ *     {@code 100;w=60} when the {@code RateLimit} header does not include it. When several policies are listed, the
+ *     one with the fewest remaining requests is used.</li>
+ *     <li>Separate {@code RateLimit-Remaining}, {@code RateLimit-Limit} and {@code RateLimit-Reset} headers, where the
+ *     reset is a number of seconds.</li>
+ *     <li>Separate {@code X-RateLimit-Remaining}, {@code X-RateLimit-Limit} and {@code X-RateLimit-Reset} headers.
+ *     Servers differ on whether this reset is a number of seconds or a time in seconds since the epoch, so a value of
+ *     at least {@link #EPOCH_SECONDS} is taken to be a time.</li>
+ * </ol>
+ *
+ * The remaining quota must be present. The limit and reset are {@link RateLimit#UNKNOWN} if they are absent.
+ */
+public class RateLimitParser implements Function<HttpServletResponse, Optional<RateLimit>> {
+
+    /** The combined {@code RateLimit} header name. */
+    public static final String RATE_LIMIT_HEADER = "RateLimit";
+
+    /** The {@code RateLimit-Policy} header name. */
+    public static final String RATE_LIMIT_POLICY_HEADER = "RateLimit-Policy";
+
+    /** The {@code RateLimit-Limit} header name. */
+    public static final String RATE_LIMIT_LIMIT_HEADER = "RateLimit-Limit";
+
+    /** The {@code RateLimit-Remaining} header name. */
+    public static final String RATE_LIMIT_REMAINING_HEADER = "RateLimit-Remaining";
+
+    /** The {@code RateLimit-Reset} header name. */
+    public static final String RATE_LIMIT_RESET_HEADER = "RateLimit-Reset";
+
+    /** The {@code X-RateLimit-Limit} header name. */
+    public static final String X_RATE_LIMIT_LIMIT_HEADER = "X-RateLimit-Limit";
+
+    /** The {@code X-RateLimit-Remaining} header name. */
+    public static final String X_RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /** The {@code X-RateLimit-Reset} header name. */
+    public static final String X_RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+
+    /**
+     * Smallest {@code X-RateLimit-Reset} value taken to be seconds since the epoch rather than a number of seconds to
+     * wait. It is a time in 2001, and more than 30 years as a wait.
+     */
+    public static final long EPOCH_SECONDS = 1_000_000_000L;
+
+    /**
+     * The clock to compute the time until reset when the reset is a time.
+     */
+    private final InstantSource clock;
+
+    private RateLimitParser(final InstantSource clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Parser for all the supported headers.
+     *
+     * @param clock the clock to compute the time until reset when the reset is a time. Useful for testing.
+     * @return parser for rate limit headers
+     */
+    public static RateLimitParser standard(final InstantSource clock) {
+        return new RateLimitParser(clock);
+    }
+
+    /**
+     * Parser for all the supported headers. Uses the system clock to compute the time until reset when the reset is
+     * a time.
+     *
+     * @return parser for rate limit headers
+     */
+    public static RateLimitParser standard() {
+        return standard(InstantSource.system());
+    }
+
+    /**
+     * Parses the rate limit headers of a response.
+     *
+     * @param response the HTTP response
+     * @return the quota, or empty if the response has no rate limit headers that can be parsed
+     */
+    @Override
+    public Optional<RateLimit> apply(final HttpServletResponse response) {
+        if (response == null) return Optional.empty();
+        return parse(response::getHeader);
+    }
+
+    /**
+     * Parses rate limit headers.
+     *
+     * @param headers looks up the value of a header by name, returning {@code null} if it is absent
+     * @return the quota, or empty if there are no rate limit headers that can be parsed
+     */
+    public Optional<RateLimit> parse(final Function<String, String> headers) {
+        final String combined = headers.apply(RATE_LIMIT_HEADER);
+        if (combined != null) {
+            final RateLimit limit = combined(combined, headers.apply(RATE_LIMIT_POLICY_HEADER));
+            if (limit != null) return Optional.of(limit);
+        }
+        RateLimit limit = separate(headers, RATE_LIMIT_REMAINING_HEADER, RATE_LIMIT_LIMIT_HEADER,
+                RATE_LIMIT_RESET_HEADER, false);
+        if (limit == null) {
+            limit = separate(headers, X_RATE_LIMIT_REMAINING_HEADER, X_RATE_LIMIT_LIMIT_HEADER,
+                    X_RATE_LIMIT_RESET_HEADER, true);
+        }
+        return Optional.ofNullable(limit);
+    }
+
+    /**
+     * Reads separate headers for the remaining quota, limit and reset.
+     *
+     * @param epoch whether a large reset is a time rather than a number of seconds
+     * @return the quota, or {@code null} if the remaining quota is absent or not a number
+     */
+    private RateLimit separate(final Function<String, String> headers, final String remainingHeader,
+                               final String limitHeader, final String resetHeader, final boolean epoch) {
+        final String remainingValue = headers.apply(remainingHeader);
+        if (remainingValue == null) return null;
+        final long remaining = leadingNumber(remainingValue);
+        if (remaining == UNKNOWN) return null;
+        final String limitValue = headers.apply(limitHeader);
+        final String resetValue = headers.apply(resetHeader);
+        final long limit = limitValue == null ? UNKNOWN : leadingNumber(limitValue);
+        final long reset = resetValue == null ? UNKNOWN : leadingNumber(resetValue);
+        final long resetMillis;
+        if (reset == UNKNOWN) {
+            resetMillis = UNKNOWN;
+        } else if (epoch && reset >= EPOCH_SECONDS) {
+            resetMillis = Math.max(0L, millis(reset) - this.clock.millis());
+        } else {
+            resetMillis = millis(reset);
+        }
+        return new RateLimit(remaining, limit, resetMillis);
+    }
+
+    /**
+     * Reads the combined {@code RateLimit} header.
+     *
+     * @param policy the {@code RateLimit-Policy} header, or {@code null}
+     * @return the quota, or {@code null} if no remaining quota could be found
+     */
+    private static RateLimit combined(final String header, final String policy) {
+        final List<Item> items = items(header);
+        Item chosen = null;
+        if (items.stream().allMatch(i -> i.name == null)) {
+            // Earlier form, where each parameter is a separate item
+            chosen = new Item();
+            for (final Item item : items) chosen.merge(item);
+        } else {
+            for (final Item item : items) {
+                if (item.remaining == UNKNOWN) continue;
+                if (chosen == null || item.remaining < chosen.remaining
+                        || item.remaining == chosen.remaining && item.reset > chosen.reset) {
+                    chosen = item;
+                }
+            }
+        }
+        if (chosen == null || chosen.remaining == UNKNOWN) return null;
+
+        long limit = chosen.limit;
+        if (limit == UNKNOWN && policy != null) {
+            for (final Item item : items(policy)) {
+                if (chosen.name != null && !chosen.name.equals(item.name)) continue;
+                limit = item.quota != UNKNOWN ? item.quota : item.name == null ? UNKNOWN : number(item.name);
+                break;
+            }
+        }
+        return new RateLimit(chosen.remaining, limit, chosen.reset == UNKNOWN ? UNKNOWN : millis(chosen.reset));
+    }
+
+    /**
+     * A list member of a rate limit header: an optional name followed by parameters.
+     */
+    private static final class Item {
+        private String name;
+        private long remaining = UNKNOWN;
+        private long reset = UNKNOWN;
+        private long limit = UNKNOWN;
+        private long quota = UNKNOWN;
+
+        private void parameter(final String key, final long value) {
+            switch (key) {
+                case "r":
+                case "remaining":
+                    this.remaining = value;
+                    break;
+                case "t":
+                case "reset":
+                    this.reset = value;
+                    break;
+                case "limit":
+                    this.limit = value;
+                    break;
+                case "q":
+                    this.quota = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void merge(final Item other) {
+            if (other.remaining != UNKNOWN) this.remaining = other.remaining;
+            if (other.reset != UNKNOWN) this.reset = other.reset;
+            if (other.limit != UNKNOWN) this.limit = other.limit;
+            if (other.quota != UNKNOWN) this.quota = other.quota;
+        }
+    }
+
+    /**
+     * Splits a header into comma-separated items, each with an optional name and semicolon-separated parameters.
+     * Parameters that are not non-negative integers are ignored.
+     */
+    private static List<Item> items(final String header) {
+        final List<Item> items = new ArrayList<>(2);
+        final int n = header.length();
+        int p = 0;
+        while (p < n) {
+            final Item item = new Item();
+            p = skipSpaces(header, p, n);
+            // Optional name, either a quoted string or a token that is not followed by '='
+            if (p < n && header.charAt(p) == '"') {
+                final int close = header.indexOf('"', p + 1);
+                if (close < 0) break;
+                item.name = header.substring(p + 1, close);
+                p = close + 1;
+            } else {
+                final int q = token(header, p, n);
+                if (q > p && (q == n || header.charAt(q) != '=')) {
+                    item.name = header.substring(p, q);
+                    p = q;
+                }
+            }
+            // Parameters, the first without a leading ';' if there was no name
+            boolean first = item.name == null;
+            while (true) {
+                p = skipSpaces(header, p, n);
+                if (p == n || header.charAt(p) == ',') break;
+                if (!first) {
+                    if (header.charAt(p) != ';') break;
+                    p = skipSpaces(header, p + 1, n);
+                }
+                first = false;
+                final int k = token(header, p, n);
+                if (k == p) break;
+                final String key = header.substring(p, k);
+                p = skipSpaces(header, k, n);
+                if (p == n || header.charAt(p) != '=') continue;
+                p = skipSpaces(header, p + 1, n);
+                final int v = token(header, p, n);
+                final long value = number(header, p, v);
+                if (value != UNKNOWN) item.parameter(key, value);
+                p = v;
+            }
+            items.add(item);
+            // Skip anything unparsed up to the next item
+            while (p < n && header.charAt(p) != ',') p++;
+            p++;
+        }
+        return items;
+    }
+
+    private static int skipSpaces(final String h, int p, final int n) {
+        while (p < n && (h.charAt(p) == ' ' || h.charAt(p) == '\t')) p++;
+        return p;
+    }
+
+    /**
+     * Finds the end of a token, which stops at whitespace and separators.
+     */
+    private static int token(final String h, int p, final int n) {
+        while (p < n) {
+            final char c = h.charAt(p);
+            if (c == ' ' || c == '\t' || c == ',' || c == ';' || c == '=' || c == '"') break;
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * Reads the integer at the start of a header, ignoring leading whitespace and anything after it, as in
+     * {@code 100, 100;w=60}.
+     *
+     * @return the value, or {@link RateLimit#UNKNOWN} if there is none
+     */
+    private static long leadingNumber(final String h) {
+        final int n = h.length();
+        final int start = skipSpaces(h, 0, n);
+        int end = start;
+        while (end < n && h.charAt(end) >= '0' && h.charAt(end) <= '9') end++;
+        return number(h, start, end);
+    }
+
+    private static long number(final String h) {
+        return number(h, 0, h.length());
+    }
+
+    /**
+     * Reads a non-negative integer, saturating at {@link Long#MAX_VALUE}.
+     *
+     * @return the value, or {@link RateLimit#UNKNOWN} if it is empty or not all digits
+     */
+    private static long number(final String h, final int start, final int end) {
+        if (start == end) return UNKNOWN;
+        for (int i = start; i < end; i++) {
+            if (h.charAt(i) < '0' || h.charAt(i) > '9') return UNKNOWN;
+        }
+        final long value = RetryAfterScanner.seconds(h, start, end);
+        return value == RetryAfterScanner.NONE ? Long.MAX_VALUE : value;
+    }
+
+    /**
+     * Converts seconds to milliseconds, saturating at {@link Long#MAX_VALUE}.
+     */
+    private static long millis(final long seconds) {
+        return seconds > Long.MAX_VALUE / 1000L ? Long.MAX_VALUE : seconds * 1000L;
+    }
+}
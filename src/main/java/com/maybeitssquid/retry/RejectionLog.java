@@ -0,0 +1,135 @@
+package com.maybeitssquid.retry;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.maybeitssquid.retry.RetryAfterParser.LOGGER;
+
+/**
+ * Warns of rejected {@code Retry-After} headers without flooding the log when a server sends the same bad value to
+ * every request. Each distinct value is logged at most once per interval, and the repeats in between are counted and
+ * reported with the next warning for that value.
+ * <p>
+ * Recently logged values are kept in a small direct-mapped table, so a value that hashes to the same entry as another
+ * replaces it and is logged again. Counters are {@link LongAdder}s, so concurrent rejections do not contend.
+ */
+final class RejectionLog {
+
+    /**
+     * The number of distinct values remembered.
+     */
+    static final int SLOTS = 64;
+
+    /**
+     * Recently logged value and when it may next be logged.
+     */
+    private static final class Entry {
+        private final String header;
+        private final AtomicLong nextLog;
+        private final LongAdder repeats = new LongAdder();
+
+        private Entry(final String header, final long nextLog) {
+            this.header = header;
+            this.nextLog = new AtomicLong(nextLog);
+        }
+
+        private boolean matches(final CharSequence h) {
+            if (this.header.length() != h.length()) return false;
+            for (int i = 0; i < this.header.length(); i++) {
+                if (this.header.charAt(i) != h.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(SLOTS);
+
+    private final Duration interval;
+
+    private final long intervalMillis;
+
+    private final InstantSource clock;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * Creates a log.
+     *
+     * @param interval the minimum time between warnings for the same value
+     * @param clock    the clock to time the interval
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    RejectionLog(final Duration interval, final InstantSource clock) {
+        if (interval.isNegative()) {
+            throw new IllegalArgumentException("Warning interval must not be negative, was " + interval);
+        }
+        this.interval = interval;
+        this.intervalMillis = RetryAfterParser.saturatedMillis(interval);
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the minimum time between warnings for the same value.
+     *
+     * @return the interval
+     */
+    Duration interval() {
+        return this.interval;
+    }
+
+    /**
+     * Counts a rejected header, and logs it unless the same value was logged within the interval.
+     *
+     * @param message the warning, with a placeholder for the header
+     * @param header  the rejected header value
+     */
+    void reject(final String message, final CharSequence header) {
+        this.rejected.increment();
+        int hash = 0;
+        for (int i = 0; i < header.length(); i++) {
+            hash = 31 * hash + header.charAt(i);
+        }
+        final int slot = (hash ^ hash >>> 16) & (SLOTS - 1);
+        final long now = this.clock.millis();
+        final long next = now > Long.MAX_VALUE - this.intervalMillis ? Long.MAX_VALUE : now + this.intervalMillis;
+
+        final Entry entry = this.entries.get(slot);
+        if (entry != null && entry.matches(header)) {
+            final long due = entry.nextLog.get();
+            if (now < due || !entry.nextLog.compareAndSet(due, next)) {
+                entry.repeats.increment();
+                this.suppressed.increment();
+            } else {
+                LOGGER.warn(message + ", repeated {} times since last logged", entry.header,
+                        entry.repeats.sumThenReset());
+            }
+            return;
+        }
+        final String value = header.toString();
+        this.entries.lazySet(slot, new Entry(value, next));
+        LOGGER.warn(message, value);
+    }
+
+    /**
+     * Gets the number of headers rejected.
+     *
+     * @return the number of rejected headers, whether logged or not
+     */
+    long rejected() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Gets the number of warnings not logged because the same value was logged within the interval.
+     *
+     * @return the number of suppressed warnings
+     */
+    long suppressed() {
+        return this.suppressed.sum();
+    }
+}
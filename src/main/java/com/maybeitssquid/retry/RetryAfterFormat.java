@@ -0,0 +1,42 @@
+package com.maybeitssquid.retry;
+
+import java.time.InstantSource;
+
+/**
+ * A {@code Retry-After} format that is not built in, such as a vendor's own variant, added to a parser with
+ * {@link RetryAfterParser.Builder#format(RetryAfterFormat)}.
+ * <p>
+ * A parser reads the first character of a header once and uses it both to choose among the built-in formats and to
+ * look up the custom formats that declared, through {@link #canStartWith(char)}, that a header in their format can
+ * start with that character. A custom format is only asked to decode a header when the header starts with one of its
+ * characters and no built-in format recognized it.
+ * <p>
+ * Implementations must be thread-safe, and should reject a header by returning {@link RetryAfterParser#NONE} rather
+ * than by throwing an exception.
+ */
+public interface RetryAfterFormat {
+
+    /**
+     * Decides whether a header in this format can start with a character. It is called for each ASCII character when
+     * a parser is built, and for any other character when a header starts with it. The default accepts every
+     * character, so the format is asked to decode every header that the built-in formats do not recognize.
+     *
+     * @param c the first character of a header, after any leading whitespace
+     * @return whether a header in this format can start with the character
+     */
+    default boolean canStartWith(final char c) {
+        return true;
+    }
+
+    /**
+     * Converts a header to a wait interval.
+     *
+     * @param header the header value
+     * @param start  index of the first character of the value, after any leading whitespace
+     * @param end    index after the last character of the value, before any trailing whitespace
+     * @param clock  the clock to compute offsets when the header is a date
+     * @return the wait in milliseconds, not negative, or {@link RetryAfterParser#NONE} if the header is not in this
+     * format
+     */
+    long millis(CharSequence header, int start, int end, InstantSource clock);
+}
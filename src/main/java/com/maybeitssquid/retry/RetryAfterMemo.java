@@ -0,0 +1,146 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Shares one parse of a response's {@code Retry-After} header between a {@link LimitRetryAfter} predicate, which
+ * parses it to decide whether to retry, and the function that then computes the wait for the same response, such as
+ * {@code HeedRetryAfter} in the resilience4j integration. Pass the same memo to both, and the header of a retried
+ * response is parsed once instead of twice.
+ * <p>
+ * The predicate {@linkplain #remember(HttpServletResponse) remembers} each result, and the wait function
+ * {@linkplain #take(HttpServletResponse) takes} it, parsing the header itself if the result is not there. Results
+ * are kept in a small direct-mapped table keyed by the identity of the response, so concurrent retries rarely
+ * displace each other, and only one result per slot is ever held. A result is removed when it is taken or when the
+ * predicate refuses the retry, and is otherwise replaced by the next response remembered in the same slot, so
+ * nothing accumulates.
+ */
+public final class RetryAfterMemo implements Function<HttpServletResponse, Optional<Duration>> {
+
+    /**
+     * The number of responses remembered at once.
+     */
+    static final int SLOTS = 16;
+
+    /**
+     * A remembered result.
+     */
+    private static final class Entry {
+        private final HttpServletResponse response;
+        private final long millis;
+
+        private Entry(final HttpServletResponse response, final long millis) {
+            this.response = response;
+            this.millis = millis;
+        }
+    }
+
+    private final Function<HttpServletResponse, Optional<Duration>> parser;
+
+    private final ToLongFunction<HttpServletResponse> millis;
+
+    private final AtomicReferenceArray<Entry> entries = new AtomicReferenceArray<>(SLOTS);
+
+    private RetryAfterMemo(final Function<HttpServletResponse, Optional<Duration>> parser) {
+        this.parser = parser;
+        this.millis = RetryAfterParser.toMillis(parser);
+    }
+
+    /**
+     * Creates a memo.
+     *
+     * @param parser the parser for the headers
+     * @return a memo of the parser's results
+     */
+    public static RetryAfterMemo of(final Function<HttpServletResponse, Optional<Duration>> parser) {
+        return new RetryAfterMemo(parser);
+    }
+
+    /**
+     * Parses the header, without consulting or changing the memo.
+     *
+     * @param response the HTTP response
+     * @return duration until a retry is allowed
+     */
+    @Override
+    public Optional<Duration> apply(final HttpServletResponse response) {
+        return this.parser.apply(response);
+    }
+
+    /**
+     * Parses the header and remembers the result for the response.
+     *
+     * @param response the HTTP response
+     * @return milliseconds until a retry is allowed, or {@link RetryAfterParser#NONE}
+     */
+    public long remember(final HttpServletResponse response) {
+        final long millis = this.millis.applyAsLong(response);
+        remember(response, millis);
+        return millis;
+    }
+
+    /**
+     * Remembers a result for the response without parsing the header, such as {@link RetryAfterParser#NONE} when a
+     * decision did not read it.
+     *
+     * @param response the HTTP response
+     * @param millis   milliseconds until a retry is allowed, or {@link RetryAfterParser#NONE}
+     */
+    void remember(final HttpServletResponse response, final long millis) {
+        if (response != null) this.entries.set(slot(response), new Entry(response, millis));
+    }
+
+    /**
+     * Removes the result remembered for the response, if any, or parses the header if there is none.
+     *
+     * @param response the HTTP response
+     * @return milliseconds until a retry is allowed, or {@link RetryAfterParser#NONE}
+     */
+    public long take(final HttpServletResponse response) {
+        final Entry entry = takeEntry(response);
+        return entry != null ? entry.millis : this.millis.applyAsLong(response);
+    }
+
+    /**
+     * Removes the result remembered for the response, without parsing the header if there is none.
+     *
+     * @param response the HTTP response
+     * @return the remembered milliseconds, or empty if no result is remembered for the response
+     */
+    OptionalLong takeRemembered(final HttpServletResponse response) {
+        final Entry entry = takeEntry(response);
+        return entry != null ? OptionalLong.of(entry.millis) : OptionalLong.empty();
+    }
+
+    private Entry takeEntry(final HttpServletResponse response) {
+        if (response == null) return null;
+        final int slot = slot(response);
+        final Entry entry = this.entries.get(slot);
+        return entry != null && entry.response == response && this.entries.compareAndSet(slot, entry, null)
+                ? entry : null;
+    }
+
+    /**
+     * Removes the result remembered for the response, if any, when it will not be taken.
+     *
+     * @param response the HTTP response
+     */
+    public void forget(final HttpServletResponse response) {
+        if (response == null) return;
+        final int slot = slot(response);
+        final Entry entry = this.entries.get(slot);
+        if (entry != null && entry.response == response) this.entries.compareAndSet(slot, entry, null);
+    }
+
+    private static int slot(final HttpServletResponse response) {
+        final int hash = System.identityHashCode(response);
+        return (hash ^ hash >>> 16) & (SLOTS - 1);
+    }
+}
@@ -4,14 +4,15 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.regex.Pattern;
+import java.util.function.ToLongFunction;
 
 /**
  * Parses an HTTP Retry-After header to determine how long to wait before retrying. Parsing of the header is based
@@ -21,7 +22,35 @@ import java.util.regex.Pattern;
  */
 public class RetryAfterParser implements Function<HttpServletResponse, Optional<Duration>> {
 
-    private final List<Function<String, Optional<Duration>>> parsers;
+    /**
+     * The formats accepted, as a combination of the {@link RetryAfterScanner} format flags.
+     */
+    private final int formats;
+
+    /**
+     * The clock to compute offsets when the header is a date.
+     */
+    private final InstantSource clock;
+
+    /**
+     * Cache of previously parsed dates, or {@code null} if dates are always parsed.
+     */
+    private final DateCache dateCache;
+
+    /**
+     * Warnings and counts of rejected headers.
+     */
+    private final RejectionLog rejections;
+
+    /**
+     * Formats added with {@link Builder#format(RetryAfterFormat)}, or {@code null} if there are none.
+     */
+    private final CustomFormats customFormats;
+
+    /**
+     * Which value to use when a response has more than one {@code Retry-After} header.
+     */
+    private final Duplicates duplicates;
 
     /**
      * Logger for errors during parsing, particularly to diagnose a misbehaving server.
@@ -31,12 +60,65 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
     /** The {@code Retry-After} header name. */
     public static final String RETRY_AFTER_HEADER = "Retry-After";
 
-    private static final DateTimeFormatter RFC_850_FORMATTER = DateTimeFormatter.ofPattern("[EEEE, ]d-MMM-yy H:m[:s] z");
-    private static final DateTimeFormatter ASCTIME_FORMATTER = DateTimeFormatter.ofPattern("[E ]MMM [ ]d H:m[:s] yyyy");
+    /**
+     * Sentinel returned by the primitive parse methods when the header is absent or cannot be parsed. It is never a
+     * valid wait, and is outside the range of dates that any of the formats can express.
+     */
+    public static final long NONE = RetryAfterScanner.NONE;
+
+    /**
+     * The longest header that is parsed, including any surrounding whitespace. The longest value in any of the
+     * formats is an RFC 850 date of 33 characters, so only padding such as leading zeros could reach it. Longer
+     * headers are rejected before any other work, so the cost of a header from an untrusted server is bounded whatever
+     * its length.
+     */
+    public static final int MAX_HEADER_LENGTH = 256;
+
+    /**
+     * How much of an oversized header is logged and remembered when it is rejected.
+     */
+    private static final int OVERSIZED_PREFIX = 64;
+
+    /**
+     * The default minimum time between warnings for the same rejected header.
+     */
+    public static final Duration DEFAULT_WARNING_INTERVAL = Duration.ofMinutes(1);
 
-    @SafeVarargs
-    private RetryAfterParser(final Function<String, Optional<Duration>>... parsers) {
-        this.parsers = Arrays.asList(parsers);
+    private RetryAfterParser(final int formats, final InstantSource clock) {
+        this(formats, clock, null, new RejectionLog(DEFAULT_WARNING_INTERVAL, clock), null, Duplicates.FIRST);
+    }
+
+    private RetryAfterParser(final int formats, final InstantSource clock, final DateCache dateCache,
+                             final RejectionLog rejections, final CustomFormats customFormats,
+                             final Duplicates duplicates) {
+        this.formats = formats;
+        this.clock = clock;
+        this.dateCache = dateCache;
+        this.rejections = rejections;
+        this.customFormats = customFormats;
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * Which value to use when a response has more than one {@code Retry-After} header, as some proxies produce by
+     * adding their own header to the one from the origin server.
+     */
+    public enum Duplicates {
+        /**
+         * Uses only the first header, as {@link HttpServletResponse#getHeader(String)} returns it. Later headers are
+         * not read, even if the first is not recognized.
+         */
+        FIRST,
+
+        /**
+         * Uses the shortest wait among the recognized headers, to retry as soon as any of them allows.
+         */
+        MIN,
+
+        /**
+         * Uses the longest wait among the recognized headers, to retry only once all of them allow.
+         */
+        MAX
     }
 
     /**
@@ -46,7 +128,7 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
      * @return Parser that accepts only {@code delay-seconds} in the {@code Retry-After} header.
      */
     public static RetryAfterParser secondsOnly() {
-        return new RetryAfterParser(STRICT_SECONDS);
+        return new RetryAfterParser(RetryAfterScanner.SECONDS, InstantSource.system());
     }
 
     /**
@@ -56,24 +138,19 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
      * @return Parser that accepts only seconds in the {@code Retry-After} header.
      */
     public static RetryAfterParser decimalSeconds() {
-        // Attempt STRICT_SECONDS first, because the DECIMAL_SECONDS parse is expensive
-        return new RetryAfterParser(STRICT_SECONDS, DECIMAL_SECONDS);
+        return new RetryAfterParser(RetryAfterScanner.ANY_SECONDS, InstantSource.system());
     }
 
     /**
      * Parser that accepts only {@code Retry-After} headers that meet a reasonably strict interpretation of
      * RFC-9110.
      *
-     * @param clock the clock to use to compute offsets when the header is a date. Useful for testing.
+     * @param clock the clock to use to compute offsets when the header is a date. Useful for testing, or pass a
+     *              {@link CoarseInstantSource} to avoid reading the system clock for every date.
      * @return Parser for RFC-9110 {@code Retry-After} headers.
      */
     public static RetryAfterParser strict(final InstantSource clock) {
-        return new RetryAfterParser(
-                STRICT_SECONDS,
-                wait(clock, IMF_FIXDATE),
-                wait(clock, RFC_850),
-                wait(clock, ASCTIME)
-        );
+        return new RetryAfterParser(RetryAfterScanner.STRICT, clock);
     }
 
     /**
@@ -90,18 +167,12 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
      * Parser that accepts {@code Retry-After} headers that meet a superset of RFC-9110, including headers
      * with a decimal number of seconds delay and ISO-8601 instants.
      *
-     * @param clock the clock to use to compute offsets when the header is a date. Useful for testing.
+     * @param clock the clock to use to compute offsets when the header is a date. Useful for testing, or pass a
+     *              {@link CoarseInstantSource} to avoid reading the system clock for every date.
      * @return Parser for extended {@code Retry-After} headers.
      */
     public static RetryAfterParser extended(final InstantSource clock) {
-        return new RetryAfterParser(
-                STRICT_SECONDS,
-                DECIMAL_SECONDS,
-                wait(clock, IMF_FIXDATE),
-                wait(clock, RFC_850),
-                wait(clock, ASCTIME),
-                wait(clock, ISO)
-        );
+        return new RetryAfterParser(RetryAfterScanner.EXTENDED, clock);
     }
 
     /**
@@ -114,52 +185,329 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
         return extended(InstantSource.system());
     }
 
+    /**
+     * Starts building a parser from a choice of the built-in formats and any custom formats. The parser recognizes
+     * all the formats in a single pass: the first character of a header selects the built-in formats and the custom
+     * formats that can start with it, and only those are read. Built-in formats are recognized first, and then custom
+     * formats are tried in the order they were added.
+     * <pre>{@code
+     * RetryAfterParser parser = RetryAfterParser.builder()
+     *         .strict()
+     *         .format(vendorEpochSeconds)
+     *         .build();
+     * }</pre>
+     *
+     * @return a builder with no formats, and the system clock
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builder for a parser with a choice of formats. A builder is not thread-safe, but the parsers it builds are.
+     */
+    public static final class Builder {
+        private int formats;
+        private InstantSource clock = InstantSource.system();
+        private Duplicates duplicates = Duplicates.FIRST;
+        private final List<RetryAfterFormat> customFormats = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Accepts an integer number of seconds.
+         *
+         * @return this builder
+         */
+        public Builder seconds() {
+            this.formats |= RetryAfterScanner.SECONDS;
+            return this;
+        }
+
+        /**
+         * Accepts a number of seconds with an optional decimal fraction.
+         *
+         * @return this builder
+         */
+        public Builder decimalSeconds() {
+            this.formats |= RetryAfterScanner.ANY_SECONDS;
+            return this;
+        }
+
+        /**
+         * Accepts IMF-fixdate, such as "Thu, 02 Jan 2003 01:23:45 GMT".
+         *
+         * @return this builder
+         */
+        public Builder imfFixdate() {
+            this.formats |= RetryAfterScanner.IMF_FIXDATE;
+            return this;
+        }
+
+        /**
+         * Accepts RFC 850 dates, such as "Thursday, 02-Jan-03 01:23:45 GMT".
+         *
+         * @return this builder
+         */
+        public Builder rfc850() {
+            this.formats |= RetryAfterScanner.RFC_850;
+            return this;
+        }
+
+        /**
+         * Accepts ANSI C {@code asctime()} dates, such as "Thu Jan  2 01:23:45 2003".
+         *
+         * @return this builder
+         */
+        public Builder asctime() {
+            this.formats |= RetryAfterScanner.ASCTIME;
+            return this;
+        }
+
+        /**
+         * Accepts ISO-8601 instants, such as "2003-01-02T01:23:45Z".
+         *
+         * @return this builder
+         */
+        public Builder iso() {
+            this.formats |= RetryAfterScanner.ISO;
+            return this;
+        }
+
+        /**
+         * Accepts the formats of {@link RetryAfterParser#strict()}.
+         *
+         * @return this builder
+         */
+        public Builder strict() {
+            this.formats |= RetryAfterScanner.STRICT;
+            return this;
+        }
+
+        /**
+         * Accepts the formats of {@link RetryAfterParser#extended()}.
+         *
+         * @return this builder
+         */
+        public Builder extended() {
+            this.formats |= RetryAfterScanner.EXTENDED;
+            return this;
+        }
+
+        /**
+         * Accepts a custom format, tried after the built-in formats and any custom formats added before it.
+         *
+         * @param format the custom format
+         * @return this builder
+         */
+        public Builder format(final RetryAfterFormat format) {
+            this.customFormats.add(Objects.requireNonNull(format, "format"));
+            return this;
+        }
+
+        /**
+         * Sets the clock to compute offsets when the header is a date.
+         *
+         * @param clock the clock, such as a {@link CoarseInstantSource}
+         * @return this builder
+         */
+        public Builder clock(final InstantSource clock) {
+            this.clock = Objects.requireNonNull(clock, "clock");
+            return this;
+        }
+
+        /**
+         * Sets which value to use when a response has more than one {@code Retry-After} header. The default is
+         * {@link Duplicates#FIRST}.
+         *
+         * @param duplicates which value to use
+         * @return this builder
+         */
+        public Builder duplicates(final Duplicates duplicates) {
+            this.duplicates = Objects.requireNonNull(duplicates, "duplicates");
+            return this;
+        }
+
+        /**
+         * Builds the parser.
+         *
+         * @return a parser for the chosen formats
+         * @throws IllegalStateException if no formats were chosen
+         */
+        public RetryAfterParser build() {
+            if (this.formats == 0 && this.customFormats.isEmpty()) {
+                throw new IllegalStateException("No Retry-After formats were chosen");
+            }
+            return new RetryAfterParser(this.formats, this.clock, null,
+                    new RejectionLog(DEFAULT_WARNING_INTERVAL, this.clock),
+                    this.customFormats.isEmpty() ? null : new CustomFormats(this.customFormats), this.duplicates);
+        }
+    }
+
+    /**
+     * Creates a parser that remembers the dates it has recently parsed. When a server sends the same date to many
+     * requests, as is typical while it is throttling, only the first one is parsed and the rest only compute the
+     * difference from the current time.
+     * <p>
+     * The cache is direct-mapped with a fixed number of entries, so a new date replaces an older one that hashes to
+     * the same entry. Lookups do not lock. Headers longer than a standard date are not cached.
+     *
+     * @param capacity the maximum number of dates to remember, rounded up to a power of two
+     * @return a parser with the same formats and clock, and a cache of dates
+     * @throws IllegalArgumentException if the capacity is not positive or is too large
+     */
+    public RetryAfterParser withDateCache(final int capacity) {
+        return new RetryAfterParser(this.formats, this.clock, new DateCache(capacity),
+                new RejectionLog(this.rejections.interval(), this.clock), this.customFormats, this.duplicates);
+    }
+
+    /**
+     * Creates a parser that warns of each distinct rejected header at most once per interval. Repeats of the same
+     * value within the interval are not logged, but are counted and reported with the next warning for that value.
+     * The default interval is {@link #DEFAULT_WARNING_INTERVAL}.
+     *
+     * @param interval the minimum time between warnings for the same value, or zero to warn of every rejection
+     * @return a parser with the same formats, clock and cache, and new counters
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public RetryAfterParser withWarningInterval(final Duration interval) {
+        return new RetryAfterParser(this.formats, this.clock, this.dateCache, new RejectionLog(interval, this.clock),
+                this.customFormats, this.duplicates);
+    }
+
+    /**
+     * Creates a parser that chooses among several {@code Retry-After} headers in a response. With any choice but
+     * {@link Duplicates#FIRST}, the headers are read from {@link HttpServletResponse#getHeaders(String)} one at a
+     * time, without copying them, and reading stops once no later header could change the choice. Headers that are
+     * not recognized are counted as rejected and skipped.
+     *
+     * @param duplicates which value to use
+     * @return a parser with the same formats, clock and cache, the given choice, and new counters
+     */
+    public RetryAfterParser withDuplicates(final Duplicates duplicates) {
+        return new RetryAfterParser(this.formats, this.clock, this.dateCache,
+                new RejectionLog(this.rejections.interval(), this.clock), this.customFormats,
+                Objects.requireNonNull(duplicates, "duplicates"));
+    }
+
+    /**
+     * Gets the number of headers that were present but empty or not recognized.
+     *
+     * @return the number of rejected headers
+     */
+    public long rejectedHeaders() {
+        return this.rejections.rejected();
+    }
+
+    /**
+     * Gets the number of warnings of rejected headers that were not logged, because the same value had been logged
+     * within the warning interval.
+     *
+     * @return the number of suppressed warnings
+     */
+    public long suppressedWarnings() {
+        return this.rejections.suppressed();
+    }
+
+    /*
+     * The single-format functions below are instances of named classes rather than lambdas, so that loading the
+     * parser does not spin up a hidden class for each of them.
+     */
+
+    /** Function for a single seconds format. */
+    private static final class DelayFunction implements Function<String, Optional<Duration>> {
+        private final int format;
+
+        private DelayFunction(final int format) {
+            this.format = format;
+        }
+
+        @Override
+        public Optional<Duration> apply(final String h) {
+            return delay(h, this.format);
+        }
+    }
+
+    /** Function for a single date format. */
+    private static final class DateFunction implements Function<String, Optional<ZonedDateTime>> {
+        private final int format;
+
+        private DateFunction(final int format) {
+            this.format = format;
+        }
+
+        @Override
+        public Optional<ZonedDateTime> apply(final String h) {
+            return date(h, this.format);
+        }
+    }
+
+    /** Primitive function for a single seconds format. */
+    private static final class DelayMillisFunction implements ToLongFunction<CharSequence> {
+        private final int format;
+
+        private DelayMillisFunction(final int format) {
+            this.format = format;
+        }
+
+        @Override
+        public long applyAsLong(final CharSequence h) {
+            return delayMillis(h, this.format);
+        }
+    }
+
+    /** Primitive function for a single date format. */
+    private static final class DateMillisFunction implements ToLongFunction<CharSequence> {
+        private final int format;
+
+        private DateMillisFunction(final int format) {
+            this.format = format;
+        }
+
+        @Override
+        public long applyAsLong(final CharSequence h) {
+            return dateMillis(h, this.format);
+        }
+    }
+
     /**
      * Accept {@code Retry-After} header that matches only strict
      * <a href="https://datatracker.ietf.org/doc/html/rfc7231#section-7.1.3">RFC 7231</a> {@code delay-seconds}.
      */
-    public static final Function<String, Optional<Duration>> STRICT_SECONDS = new PatternGuarded<>(
-            "^\\d+$",
-            h -> Duration.ofSeconds(Long.parseLong(h))
-    );
+    public static final Function<String, Optional<Duration>> STRICT_SECONDS =
+            new DelayFunction(RetryAfterScanner.SECONDS);
 
     /**
      * Accept extended {@code Retry-After} header that allows decimal seconds.
      */
-    public static final Function<String, Optional<Duration>> DECIMAL_SECONDS = new PatternGuarded<>(
-            "^\\d+(\\.\\d*)?$",
-            h -> Duration.ofMillis(new BigDecimal(h).movePointRight(3).longValue())
-    );
+    public static final Function<String, Optional<Duration>> DECIMAL_SECONDS =
+            new DelayFunction(RetryAfterScanner.DECIMAL);
 
     /**
-     * Forgiving parser for a superset of IMF-fixdate using the builtin {@link DateTimeFormatter#RFC_1123_DATE_TIME}
+     * Forgiving parser for a superset of IMF-fixdate. The canonical fixed layout is decoded directly, and other
+     * variants fall back to the builtin {@link DateTimeFormatter#RFC_1123_DATE_TIME}.
      * <p>
      * Example: "Thu, 02 Jan 2003 01:23:45 GMT"
      */
-    public static final Function<String, Optional<ZonedDateTime>> IMF_FIXDATE = new PatternGuarded<>(
-            "^(\\w{3},\\s)?\\d{1,2}\\s\\w{3}\\s\\d{4}\\s\\d{1,2}:\\d{2}(:\\d{2})?\\sGMT$",
-            h -> ZonedDateTime.parse(h, DateTimeFormatter.RFC_1123_DATE_TIME)
-    );
+    public static final Function<String, Optional<ZonedDateTime>> IMF_FIXDATE =
+            new DateFunction(RetryAfterScanner.IMF_FIXDATE);
 
     /**
      * Forgiving parer for a superset of RFC-850 dates.
      * <p>
      * Example: "Thursday, 02-Jan-03 01:23:45 GMT"
      */
-    public static final Function<String, Optional<ZonedDateTime>> RFC_850 = new PatternGuarded<>(
-            "^(\\w+,\\s)?\\d{1,2}-\\w{3}-\\d{2}\\s\\d{1,2}:\\d{2}(:\\d{2})?\\s\\w+$",
-            h -> ZonedDateTime.parse(h, RFC_850_FORMATTER)
-    );
+    public static final Function<String, Optional<ZonedDateTime>> RFC_850 =
+            new DateFunction(RetryAfterScanner.RFC_850);
 
     /**
      * Forgiving parer for a superset of ASCTIME dates.
      * <p>
      * Example: "Thu Jan  2 01:23:45 2003"
      */
-    public static final Function<String, Optional<ZonedDateTime>> ASCTIME = new PatternGuarded<>(
-            "^(\\w{3}\\s+)?\\w{3}\\s+\\d+\\s\\d{1,2}:\\d{2}(:\\d{2}+)?\\s+\\d{4}$",
-            h -> LocalDateTime.parse(h, ASCTIME_FORMATTER).atZone(ZoneOffset.UTC)
-    );
+    public static final Function<String, Optional<ZonedDateTime>> ASCTIME =
+            new DateFunction(RetryAfterScanner.ASCTIME);
 
     /**
      * Parser for ISO-8601 dates.
@@ -169,10 +517,44 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
      * Example: "2011-12-03T10:15:30.123456Z"
      * Example: "2011-12-03T10:15:30.123456789Z"
      */
-    public static final Function<String, Optional<ZonedDateTime>> ISO = new PatternGuarded<>(
-            "^\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.(\\d{3}){1,3})?Z$",
-            h -> ZonedDateTime.parse(h, DateTimeFormatter.ISO_OFFSET_DATE_TIME)
-    );
+    public static final Function<String, Optional<ZonedDateTime>> ISO =
+            new DateFunction(RetryAfterScanner.ISO);
+
+    /**
+     * Primitive form of {@link #STRICT_SECONDS} that returns the wait in milliseconds, or {@link #NONE}.
+     */
+    public static final ToLongFunction<CharSequence> STRICT_SECONDS_MILLIS =
+            new DelayMillisFunction(RetryAfterScanner.SECONDS);
+
+    /**
+     * Primitive form of {@link #DECIMAL_SECONDS} that returns the wait in milliseconds, or {@link #NONE}.
+     */
+    public static final ToLongFunction<CharSequence> DECIMAL_SECONDS_MILLIS =
+            new DelayMillisFunction(RetryAfterScanner.DECIMAL);
+
+    /**
+     * Primitive form of {@link #IMF_FIXDATE} that returns milliseconds since the epoch, or {@link #NONE}.
+     */
+    public static final ToLongFunction<CharSequence> IMF_FIXDATE_MILLIS =
+            new DateMillisFunction(RetryAfterScanner.IMF_FIXDATE);
+
+    /**
+     * Primitive form of {@link #RFC_850} that returns milliseconds since the epoch, or {@link #NONE}.
+     */
+    public static final ToLongFunction<CharSequence> RFC_850_MILLIS =
+            new DateMillisFunction(RetryAfterScanner.RFC_850);
+
+    /**
+     * Primitive form of {@link #ASCTIME} that returns milliseconds since the epoch, or {@link #NONE}.
+     */
+    public static final ToLongFunction<CharSequence> ASCTIME_MILLIS =
+            new DateMillisFunction(RetryAfterScanner.ASCTIME);
+
+    /**
+     * Primitive form of {@link #ISO} that returns milliseconds since the epoch, or {@link #NONE}.
+     */
+    public static final ToLongFunction<CharSequence> ISO_MILLIS =
+            new DateMillisFunction(RetryAfterScanner.ISO);
 
     /**
      * Parser to recognize the Retry-After formats defined in section 5.6.6 of RFC-9110 and convert the value to a
@@ -186,69 +568,198 @@ public class RetryAfterParser implements Function<HttpServletResponse, Optional<
      */
     @Override
     public Optional<Duration> apply(final HttpServletResponse response) {
-        if (response == null) return Optional.empty();
+        final long retryAfter = millis(response);
+        return retryAfter == NONE ? Optional.empty() : Optional.of(Duration.ofMillis(retryAfter));
+    }
 
-        final String rawHeader = response.getHeader(RETRY_AFTER_HEADER);
-        if (rawHeader == null) return Optional.empty();
+    /**
+     * Primitive form of {@link #apply(HttpServletResponse)} that does not allocate when the header is a number of
+     * seconds.
+     *
+     * @param response the raw HTTP servlet response
+     * @return milliseconds until a retry is allowed, or {@link #NONE} if there is no usable header
+     */
+    public long millis(final HttpServletResponse response) {
+        if (response == null) return NONE;
+        if (this.duplicates == Duplicates.FIRST) return parseMillis(response.getHeader(RETRY_AFTER_HEADER));
+        return parseMillis(response.getHeaders(RETRY_AFTER_HEADER));
+    }
 
-        final String header = rawHeader.trim();
-        if (header.isEmpty()) {
-            LOGGER.warn("Received empty Retry-After header \"{}\"", rawHeader);
-            return Optional.empty();
+    /**
+     * Parses each of several {@code Retry-After} headers in turn, and chooses among the recognized values as set by
+     * {@link #withDuplicates(Duplicates)}. With {@link Duplicates#FIRST}, only the first header is parsed. With
+     * {@link Duplicates#MIN}, stops at a wait of zero, and with {@link Duplicates#MAX}, stops at a wait of
+     * {@link Long#MAX_VALUE}.
+     *
+     * @param headers the header values, or {@code null}
+     * @return milliseconds until a retry is allowed, or {@link #NONE} if no header is recognized
+     */
+    public long parseMillis(final Iterable<? extends CharSequence> headers) {
+        if (headers == null) return NONE;
+        final boolean min = this.duplicates == Duplicates.MIN;
+        final long bound = min ? 0L : Long.MAX_VALUE;
+        long chosen = NONE;
+        for (final CharSequence header : headers) {
+            final long millis = parseMillis(header);
+            if (this.duplicates == Duplicates.FIRST) return millis;
+            if (millis == NONE) continue;
+            if (chosen == NONE || (min ? millis < chosen : millis > chosen)) chosen = millis;
+            if (chosen == bound) break;
         }
+        return chosen;
+    }
 
-        // Return the result of the first successful parse
-        for (final Function<String, Optional<Duration>> parser : parsers) {
-            final Optional<Duration> retryAfter = parser.apply(header);
-            if (retryAfter.isPresent()) {
-                return retryAfter;
-            }
+    /**
+     * Parses the value of a {@code Retry-After} header. Leading and trailing whitespace is ignored.
+     * <p>
+     * The time taken is linear in the length of the header, and headers longer than {@link #MAX_HEADER_LENGTH} are
+     * rejected before they are read, so a header from an untrusted server cannot be crafted to take long to parse.
+     *
+     * @param header the header value
+     * @return milliseconds until a retry is allowed, or {@link #NONE} if the header is absent, too long, or not
+     * recognized
+     */
+    public long parseMillis(final CharSequence header) {
+        if (header == null) return NONE;
+        if (header.length() > MAX_HEADER_LENGTH) {
+            rejections.reject("Received oversized Retry-After header starting \"{}\"",
+                    header.subSequence(0, OVERSIZED_PREFIX));
+            return NONE;
+        }
+
+        int start = 0;
+        int end = header.length();
+        while (start < end && header.charAt(start) <= ' ') start++;
+        while (end > start && header.charAt(end - 1) <= ' ') end--;
+        if (start == end) {
+            rejections.reject("Received empty Retry-After header \"{}\"", header);
+            return NONE;
         }
 
-        LOGGER.warn("Received unrecognized Retry-After header \"{}\"", rawHeader);
-        return Optional.empty();
+        long retryAfter = RetryAfterScanner.millis(header, start, end, formats, clock, dateCache);
+        if (retryAfter == NONE && customFormats != null) {
+            retryAfter = customFormats.millis(header, start, end, clock);
+        }
+        if (retryAfter == NONE) {
+            rejections.reject("Received unrecognized Retry-After header \"{}\"", header);
+        }
+        return retryAfter;
     }
 
     /**
-     * Converts header that arrives as a date into an offset from q clock.
+     * Parses the value of a {@code Retry-After} header held as raw bytes, without decoding the bytes to a
+     * {@link String}. Each byte is read as one ISO-8859-1 character, as for HTTP field values.
      *
-     * @param clock the clock to obtain the current time.
-     * @param parser parser for the date in the header.
-     * @return function that converts a date header into an offset.
+     * @param header the array holding the header value
+     * @param offset index of the first byte of the value
+     * @param length the number of bytes in the value
+     * @return milliseconds until a retry is allowed, or {@link #NONE} if the header is not recognized
+     * @throws IndexOutOfBoundsException if the range is outside the array
+     * @see #parseMillis(CharSequence)
      */
-    private static Function<String, Optional<Duration>> wait(
-            final InstantSource clock,
-            final Function<String, Optional<ZonedDateTime>> parser) {
-
-        return h -> parser.apply(h).map( t -> {
-            final Duration difference = Duration.between(clock.instant(), t.toInstant());
-            return difference.isNegative() ? Duration.ZERO : difference;
-        });
+    public long parseMillis(final byte[] header, final int offset, final int length) {
+        if (header == null) return NONE;
+        return parseMillis(AsciiSequence.of(header, offset, length));
     }
 
     /**
-     * Creates a function that tests an input string against a pattern before attempting to parse the string.
+     * Parses the value of a {@code Retry-After} header held between the position and limit of a buffer, without
+     * decoding the bytes to a {@link String}. The position and limit of the buffer are not changed.
      *
-     * @param <T> the type generated by the parser
+     * @param header the buffer holding the header value
+     * @return milliseconds until a retry is allowed, or {@link #NONE} if the header is not recognized
+     * @see #parseMillis(CharSequence)
      */
-    private static class PatternGuarded<T> implements Function<String, Optional<T>> {
-        private final Pattern guard;
-        private final Function<String, T> parser;
+    public long parseMillis(final ByteBuffer header) {
+        if (header == null) return NONE;
+        return parseMillis(AsciiSequence.of(header));
+    }
 
-        public PatternGuarded(final String pattern, final Function<String, T> parser) {
-            this.guard = Pattern.compile(pattern);
-            this.parser = parser;
+    /**
+     * Adapts any parser to the primitive form used by {@link #millis(HttpServletResponse)}. A
+     * {@code RetryAfterParser} is used directly, without the {@link Optional} and {@link Duration} wrapping. Waits
+     * from any other parser are rounded up to whole milliseconds, so that a wait even a fraction of a millisecond
+     * over a limit is still over it, and a wait is never shortened.
+     *
+     * @param parser the parser for the headers
+     * @return function that returns milliseconds until a retry is allowed, or {@link #NONE}
+     */
+    public static ToLongFunction<HttpServletResponse> toMillis(
+            final Function<HttpServletResponse, Optional<Duration>> parser) {
+        if (parser instanceof RetryAfterParser) {
+            return ((RetryAfterParser) parser)::millis;
         }
+        return response -> parser.apply(response).map(RetryAfterParser::ceilingMillis).orElse(NONE);
+    }
 
-        @Override
-        public Optional<T> apply(final String header) {
-            try {
-                return guard.matcher(header).matches() ? Optional.of(parser.apply(header)) : Optional.empty();
-            } catch (final RuntimeException e) {
-                LOGGER.warn("Failed to parse Retry-After header \"{}\"", header, e);
-                return Optional.empty();
-            }
+    /**
+     * Converts a duration to milliseconds, rounding any fraction of a millisecond up and saturating instead of
+     * overflowing.
+     */
+    static long ceilingMillis(final Duration duration) {
+        final long millis = saturatedMillis(duration);
+        // Duration.toMillis truncates toward zero, which already rounds a negative duration up
+        return !duration.isNegative() && duration.getNano() % 1_000_000 != 0 && millis < Long.MAX_VALUE
+                ? millis + 1L : millis;
+    }
+
+    /**
+     * Converts a duration to milliseconds, saturating instead of overflowing.
+     */
+    static long saturatedMillis(final Duration duration) {
+        try {
+            return duration.toMillis();
+        } catch (final ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE + 1L : Long.MAX_VALUE;
         }
     }
 
+    /**
+     * Converts a header in a single seconds format into a duration.
+     *
+     * @param h      the header
+     * @param format the format to accept
+     * @return the duration, if the header matches the format
+     */
+    private static Optional<Duration> delay(final String h, final int format) {
+        final long millis = delayMillis(h, format);
+        return millis == NONE ? Optional.empty() : Optional.of(Duration.ofMillis(millis));
+    }
+
+    /**
+     * Converts a header in a single seconds format into milliseconds.
+     *
+     * @param h      the header
+     * @param format the format to accept
+     * @return the wait in milliseconds, or {@link #NONE}
+     */
+    private static long delayMillis(final CharSequence h, final int format) {
+        if (h == null) return NONE;
+        return RetryAfterScanner.millis(h, 0, h.length(), format, null);
+    }
+
+    /**
+     * Converts a header in a single date format into milliseconds since the epoch.
+     *
+     * @param h      the header
+     * @param format the format to accept
+     * @return the date in milliseconds since the epoch, or {@link #NONE}
+     */
+    private static long dateMillis(final CharSequence h, final int format) {
+        if (h == null || RetryAfterScanner.recognize(h, 0, h.length(), format) != format) return NONE;
+        return RetryAfterScanner.epochMillis(format, h, 0, h.length());
+    }
+
+    /**
+     * Parses a header in a single date format.
+     *
+     * @param h      the header
+     * @param format the format to accept
+     * @return the date, if the header matches the format
+     */
+    private static Optional<ZonedDateTime> date(final String h, final int format) {
+        if (h == null || RetryAfterScanner.recognize(h, 0, h.length(), format) != format) return Optional.empty();
+        return Optional.ofNullable(RetryAfterScanner.date(format, h, 0, h.length()));
+    }
+
 }
@@ -0,0 +1,730 @@
+package com.maybeitssquid.retry;
+
+import java.text.Format;
+import java.text.ParsePosition;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static com.maybeitssquid.retry.RetryAfterParser.LOGGER;
+
+/**
+ * Single-pass recognizer for the {@code Retry-After} formats understood by {@link RetryAfterParser}. The header is
+ * read once, left to right, and the first character and separators decide which format is being read. The accepted
+ * shapes are exactly those of the regular expressions that previously guarded each format:
+ *
+ * <table>
+ *     <caption>Recognized shapes</caption>
+ *     <thead>
+ *         <tr><th>Format</th><th>Shape</th></tr>
+ *     </thead>
+ *     <tbody>
+ *         <tr><td>{@link #SECONDS}</td><td>{@code \d+}</td></tr>
+ *         <tr><td>{@link #DECIMAL}</td><td>{@code \d+(\.\d*)?}</td></tr>
+ *         <tr><td>{@link #IMF_FIXDATE}</td>
+ *             <td>{@code (\w{3},\s)?\d{1,2}\s\w{3}\s\d{4}\s\d{1,2}:\d{2}(:\d{2})?\sGMT}</td></tr>
+ *         <tr><td>{@link #RFC_850}</td>
+ *             <td>{@code (\w+,\s)?\d{1,2}-\w{3}-\d{2}\s\d{1,2}:\d{2}(:\d{2})?\s\w+}</td></tr>
+ *         <tr><td>{@link #ASCTIME}</td>
+ *             <td>{@code (\w{3}\s+)?\w{3}\s+\d+\s\d{1,2}:\d{2}(:\d{2})?\s+\d{4}}</td></tr>
+ *         <tr><td>{@link #ISO}</td>
+ *             <td>{@code \d{4}-\d{2}-\d{2}T\d{2}:\d{2}:\d{2}(\.(\d{3}){1,3})?Z}</td></tr>
+ *     </tbody>
+ * </table>
+ * <p>
+ * A leading word that is not a day or month name can never be parsed by the date formatters, so headers that start
+ * with anything other than an ASCII letter or digit are rejected without further reading.
+ * <p>
+ * Formats are never tried in turn. Each header follows a single path through the recognizer, and the enabled formats
+ * only decide whether the shape found at the end of that path is accepted, so the cost of recognizing a header does
+ * not depend on which other formats are enabled or on how often a server sends each of them.
+ * <p>
+ * Recognition is linear in the length of the header, unlike a backtracking regular expression with nested or adjacent
+ * repetitions. Each run of digits, letters or whitespace is consumed by a loop that never backs up, and the only
+ * alternative that reads a run a second time is the optional day name of an asctime date, so no character is read
+ * more than twice. Only a recognized header is passed to a date formatter, and {@link RetryAfterParser} bounds the
+ * length of every header before it is recognized.
+ */
+final class RetryAfterScanner {
+
+    /** Integer {@code delay-seconds}. */
+    static final int SECONDS = 1;
+
+    /** Decimal seconds. */
+    static final int DECIMAL = 1 << 1;
+
+    /** IMF-fixdate, e.g. "Thu, 02 Jan 2003 01:23:45 GMT". */
+    static final int IMF_FIXDATE = 1 << 2;
+
+    /** RFC 850 date, e.g. "Thursday, 02-Jan-03 01:23:45 GMT". */
+    static final int RFC_850 = 1 << 3;
+
+    /** ANSI C {@code asctime()} date, e.g. "Thu Jan  2 01:23:45 2003". */
+    static final int ASCTIME = 1 << 4;
+
+    /** ISO-8601 instant, e.g. "2003-01-02T01:23:45Z". */
+    static final int ISO = 1 << 5;
+
+    /** The formats in {@code decimalSeconds()}. */
+    static final int ANY_SECONDS = SECONDS | DECIMAL;
+
+    /** The formats in {@code strict()}. */
+    static final int STRICT = SECONDS | IMF_FIXDATE | RFC_850 | ASCTIME;
+
+    /** The formats in {@code extended()}. */
+    static final int EXTENDED = STRICT | DECIMAL | ISO;
+
+    /** Result when the header is not recognized or cannot be converted. */
+    static final long NONE = Long.MIN_VALUE;
+
+    /** The largest whole number of seconds that can be expressed in milliseconds. */
+    private static final long MAX_SECONDS = Long.MAX_VALUE / 1000L;
+
+    /*
+     * Formatters for each date format, each in its own holder class so that it is built the first time a header in
+     * that format is parsed rather than when the scanner is loaded. A parser that only ever sees seconds never loads
+     * the java.time formatting classes. Each is adapted to java.text.Format, whose parse methods report failure
+     * without throwing.
+     */
+
+    private static final class ImfFixdateFormat {
+        private static final Format FORMAT = DateTimeFormatter.RFC_1123_DATE_TIME.toFormat(ZonedDateTime::from);
+    }
+
+    private static final class Rfc850Format {
+        private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("[EEEE, ]d-MMM-yy H:m[:s] z");
+        private static final Format FORMAT = FORMATTER.toFormat(ZonedDateTime::from);
+    }
+
+    private static final class AsctimeFormat {
+        private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("[E ]MMM [ ]d H:m[:s] yyyy");
+        private static final Format FORMAT = FORMATTER.toFormat(LocalDateTime::from);
+    }
+
+    private static final class IsoFormat {
+        private static final Format FORMAT = DateTimeFormatter.ISO_OFFSET_DATE_TIME.toFormat(ZonedDateTime::from);
+    }
+
+    /** Layout of an ISO-8601 instant after the year and first hyphen, where '0' stands for any digit. */
+    private static final String ISO_LAYOUT = "00-00T00:00:00";
+
+    /** Canonical layout of an IMF-fixdate, where 'x' stands for any letter and '0' for any digit. */
+    private static final String IMF_FIXDATE_LAYOUT = "xxx, 00 xxx 0000 00:00:00 GMT";
+
+    /*
+     * Classes of the first character of a header, which decide the formats it can be.
+     */
+    private static final int OTHER = 0;
+    private static final int DIGIT = 1;
+    private static final int LETTER = 2;
+
+    /** Class of each ASCII character when it starts a header. Any other character is {@link #OTHER}. */
+    private static final byte[] LEADS = new byte[128];
+
+    /** Formats that can start with each class of character. */
+    private static final int[] CANDIDATES = {
+            0,
+            SECONDS | DECIMAL | ISO | IMF_FIXDATE | RFC_850,
+            IMF_FIXDATE | RFC_850 | ASCTIME
+    };
+
+    static {
+        for (char c = '0'; c <= '9'; c++) LEADS[c] = DIGIT;
+        for (char c = 'A'; c <= 'Z'; c++) LEADS[c] = LETTER;
+        for (char c = 'a'; c <= 'z'; c++) LEADS[c] = LETTER;
+    }
+
+    /** Day names as packed three-character keys, Monday first. */
+    private static final int[] DAYS = keys("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
+
+    /** Month names as packed three-character keys, January first. */
+    private static final int[] MONTHS = keys("Jan", "Feb", "Mar", "Apr", "May", "Jun",
+            "Jul", "Aug", "Sep", "Oct", "Nov", "Dec");
+
+    private RetryAfterScanner() {
+    }
+
+    /**
+     * Recognizes and converts a header to a wait interval.
+     *
+     * @param h       the header value
+     * @param start   index of the first character of the value, after any leading whitespace
+     * @param end     index after the last character of the value, before any trailing whitespace
+     * @param formats the formats to accept
+     * @param clock   the clock to compute offsets when the header is a date
+     * @return the wait in milliseconds, or {@link #NONE}
+     */
+    static long millis(final CharSequence h, final int start, final int end, final int formats,
+                       final InstantSource clock) {
+        return millis(h, start, end, formats, clock, null);
+    }
+
+    /**
+     * Recognizes and converts a header to a wait interval, consulting a cache of dates first.
+     *
+     * @param h       the header value
+     * @param start   index of the first character of the value, after any leading whitespace
+     * @param end     index after the last character of the value, before any trailing whitespace
+     * @param formats the formats to accept
+     * @param clock   the clock to compute offsets when the header is a date
+     * @param cache   cache of previously parsed dates, or {@code null}
+     * @return the wait in milliseconds, or {@link #NONE}
+     */
+    static long millis(final CharSequence h, final int start, final int end, final int formats,
+                       final InstantSource clock, final DateCache cache) {
+        if ((formats & SECONDS) != 0 && start < end && end - start <= SwarDigits.MAX_DIGITS) {
+            // Fast path for the most common header, a few digits of delay-seconds
+            final long seconds = SwarDigits.parse(h, start, end);
+            if (seconds >= 0L) return seconds * 1000L;
+        }
+        if (cache != null) {
+            final long cached = cache.get(h, start, end);
+            if (cached != NONE) return until(cached, clock);
+        }
+        final int format = recognize(h, start, end, formats);
+        switch (format) {
+            case SECONDS:
+                final long seconds = seconds(h, start, end);
+                if (seconds != NONE) return seconds > MAX_SECONDS ? Long.MAX_VALUE : seconds * 1000L;
+                // Too long for delay-seconds, but may still be read as a decimal
+                return (formats & DECIMAL) != 0 ? decimal(h, start, end) : NONE;
+            case DECIMAL:
+                return decimal(h, start, end);
+            case IMF_FIXDATE:
+            case RFC_850:
+            case ASCTIME:
+            case ISO:
+                final long date = epochMillis(format, h, start, end);
+                if (date == NONE) return NONE;
+                if (cache != null) cache.put(h, start, end, date);
+                return until(date, clock);
+            default:
+                return NONE;
+        }
+    }
+
+    /**
+     * Converts a date into a wait from the current time.
+     *
+     * @return the wait in milliseconds, zero if the date has passed
+     */
+    private static long until(final long epochMillis, final InstantSource clock) {
+        final long difference = epochMillis - clock.millis();
+        return difference < 0L ? 0L : difference;
+    }
+
+    /**
+     * Reads the header once to decide which of the formats it matches.
+     *
+     * @param h       the header value
+     * @param start   index of the first character of the value
+     * @param end     index after the last character of the value
+     * @param formats the formats to accept
+     * @return the recognized format, or zero if none matched
+     */
+    static int recognize(final CharSequence h, final int start, final int end, final int formats) {
+        if (start >= end) return 0;
+        final char c = h.charAt(start);
+        final int lead = c < LEADS.length ? LEADS[c] : OTHER;
+        if ((CANDIDATES[lead] & formats) == 0) return 0;
+        switch (lead) {
+            case DIGIT:
+                return digitFirst(h, start, end, formats);
+            case LETTER:
+                return letterFirst(h, start, end, formats);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Recognizes a header that starts with a digit: seconds, an ISO-8601 instant, or a date that starts with the day
+     * of the month.
+     */
+    private static int digitFirst(final CharSequence h, final int start, final int end, final int formats) {
+        final int p = digits(h, start, end);
+        final int n = p - start;
+        if (p == end) return (formats & SECONDS) != 0 ? SECONDS : formats & DECIMAL;
+        final char s = h.charAt(p);
+        if (s == '.') {
+            return (formats & DECIMAL) != 0 && digits(h, p + 1, end) == end ? DECIMAL : 0;
+        } else if (s == '-' && n == 4) {
+            return (formats & ISO) != 0 && iso(h, p + 1, end) ? ISO : 0;
+        } else if (n <= 2) {
+            return day(h, p, end, formats);
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Recognizes a header that starts with a letter: a date that starts with a day name, or an asctime date that
+     * starts with the month.
+     */
+    private static int letterFirst(final CharSequence h, final int start, final int end, final int formats) {
+        final int p = word(h, start, end);
+        final int n = p - start;
+        if (p == end) return 0;
+        final char s = h.charAt(p);
+        if (s == ',') {
+            // Optional day name, "\w{3},\s" for IMF-fixdate or "\w+,\s" for RFC 850
+            if (p + 1 == end || !isSpace(h.charAt(p + 1))) return 0;
+            final int q = digits(h, p + 2, end);
+            final int m = q - p - 2;
+            return m == 1 || m == 2 ? day(h, q, end, n == 3 ? formats : formats & ~IMF_FIXDATE) : 0;
+        } else if (isSpace(s) && n == 3) {
+            return (formats & ASCTIME) != 0 && asctime(h, p, end) ? ASCTIME : 0;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Converts integer seconds.
+     *
+     * @return the number of seconds, or {@link #NONE} if the value is too large
+     */
+    static long seconds(final CharSequence h, final int start, final int end) {
+        long value = 0L;
+        for (int i = start; i < end; i++) {
+            final int digit = h.charAt(i) - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10L) return NONE;
+            value = value * 10L + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Converts decimal seconds to milliseconds in fixed point. Digits beyond the third decimal place are truncated,
+     * so the result is rounded toward zero. Values too large to express in milliseconds saturate at
+     * {@link Long#MAX_VALUE}.
+     *
+     * @return the number of milliseconds
+     */
+    static long decimal(final CharSequence h, final int start, final int end) {
+        long seconds = 0L;
+        int i = start;
+        for (; i < end; i++) {
+            final char c = h.charAt(i);
+            if (c == '.') break;
+            // Stop accumulating once past the limit, so the value cannot wrap
+            if (seconds <= MAX_SECONDS) seconds = seconds * 10L + (c - '0');
+        }
+        if (seconds > MAX_SECONDS) return Long.MAX_VALUE;
+
+        int fraction = 0;
+        int scale = 100;
+        for (i++; i < end && scale > 0; i++, scale /= 10) {
+            fraction += (h.charAt(i) - '0') * scale;
+        }
+        final long millis = seconds * 1000L;
+        return millis > Long.MAX_VALUE - fraction ? Long.MAX_VALUE : millis + fraction;
+    }
+
+    /**
+     * Converts a recognized date to milliseconds since the epoch.
+     *
+     * @param format the format returned by {@link #recognize(CharSequence, int, int, int)}
+     * @return the date in milliseconds since the epoch, or {@link #NONE} if the formatter rejected it
+     */
+    static long epochMillis(final int format, final CharSequence h, final int start, final int end) {
+        if (format == IMF_FIXDATE) {
+            final long fixed = fixdate(h, start, end);
+            if (fixed != NONE) return fixed;
+        }
+        final ZonedDateTime date = parse(format, h, start, end);
+        return date == null ? NONE : date.toInstant().toEpochMilli();
+    }
+
+    /**
+     * Parses a recognized date.
+     *
+     * @param format the format returned by {@link #recognize(CharSequence, int, int, int)}
+     * @return the date, or {@code null} if the formatter rejected it
+     */
+    static ZonedDateTime date(final int format, final CharSequence h, final int start, final int end) {
+        if (format == IMF_FIXDATE) {
+            final long fixed = fixdate(h, start, end);
+            if (fixed != NONE) return ZonedDateTime.ofInstant(Instant.ofEpochMilli(fixed), ZoneOffset.UTC);
+        }
+        return parse(format, h, start, end);
+    }
+
+    /**
+     * Decodes an IMF-fixdate in its canonical fixed layout, "Thu, 02 Jan 2003 01:23:45 GMT", without a formatter.
+     * The day and month names must match case exactly, all fields must be in range, and the day name must agree with
+     * the date. Anything else, including the variants that {@link #recognize(CharSequence, int, int, int)} allows,
+     * is left to {@link DateTimeFormatter#RFC_1123_DATE_TIME}.
+     *
+     * @return the date in milliseconds since the epoch, or {@link #NONE} if the header is not canonical
+     */
+    static long fixdate(final CharSequence h, final int start, final int end) {
+        if (end - start != IMF_FIXDATE_LAYOUT.length()) return NONE;
+        for (int i = 0; i < IMF_FIXDATE_LAYOUT.length(); i++) {
+            final char l = IMF_FIXDATE_LAYOUT.charAt(i);
+            if (l != 'x' && l != '0' && h.charAt(start + i) != l) return NONE;
+        }
+        final int dayOfWeek = name(DAYS, h, start);
+        final int month = name(MONTHS, h, start + 8) + 1;
+        final int day = twoDigits(h, start + 5);
+        final int year = twoDigits(h, start + 12) * 100 + twoDigits(h, start + 14);
+        final int hour = twoDigits(h, start + 17);
+        final int minute = twoDigits(h, start + 20);
+        final int second = twoDigits(h, start + 23);
+        if (dayOfWeek < 0 || month < 1 || year < 0 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return NONE;
+        }
+        final long epochDay = epochDay(year, month, day);
+        // 1970-01-01 was a Thursday, and DAYS starts from Monday
+        if (Math.floorMod(epochDay + 3L, 7L) != dayOfWeek) return NONE;
+        return ((epochDay * 24L + hour) * 60L + minute) * 60_000L + second * 1000L;
+    }
+
+    /**
+     * Parses a recognized date with the matching formatter. Rejection is reported by returning {@code null}: dates
+     * with fields out of range are turned away by {@link #plausible(int, CharSequence, int, int)}, and the formatter
+     * is used through {@link Format#parseObject(String, ParsePosition)}, which reports syntax errors through the
+     * position rather than by throwing. Only when debug logging is enabled is the formatter allowed to throw, so that
+     * the reason for the rejection is logged.
+     *
+     * @param format the format returned by {@link #recognize(CharSequence, int, int, int)}
+     * @return the date, or {@code null} if the formatter rejected it
+     */
+    private static ZonedDateTime parse(final int format, final CharSequence h, final int start, final int end) {
+        if (!plausible(format, h, start, end)) return null;
+        final String text = h.subSequence(start, end).toString();
+        if (LOGGER.isDebugEnabled()) return parseOrThrow(format, text);
+
+        final Format parser;
+        switch (format) {
+            case IMF_FIXDATE:
+                parser = ImfFixdateFormat.FORMAT;
+                break;
+            case RFC_850:
+                parser = Rfc850Format.FORMAT;
+                break;
+            case ASCTIME:
+                parser = AsctimeFormat.FORMAT;
+                break;
+            case ISO:
+                parser = IsoFormat.FORMAT;
+                break;
+            default:
+                return null;
+        }
+        final ParsePosition position = new ParsePosition(0);
+        final Object date = parser.parseObject(text, position);
+        if (date == null || position.getIndex() != text.length()) return null;
+        return date instanceof LocalDateTime ? ((LocalDateTime) date).atZone(ZoneOffset.UTC) : (ZonedDateTime) date;
+    }
+
+    /**
+     * Parses a recognized date with the matching formatter, logging the exception from a rejected date.
+     *
+     * @param format the format returned by {@link #recognize(CharSequence, int, int, int)}
+     * @return the date, or {@code null} if the formatter rejected it
+     */
+    private static ZonedDateTime parseOrThrow(final int format, final String text) {
+        try {
+            switch (format) {
+                case IMF_FIXDATE:
+                    return ZonedDateTime.parse(text, DateTimeFormatter.RFC_1123_DATE_TIME);
+                case RFC_850:
+                    return ZonedDateTime.parse(text, Rfc850Format.FORMATTER);
+                case ASCTIME:
+                    return LocalDateTime.parse(text, AsctimeFormat.FORMATTER).atZone(ZoneOffset.UTC);
+                case ISO:
+                    return ZonedDateTime.parse(text, DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+                default:
+                    return null;
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.debug("Failed to parse Retry-After header \"{}\"", text, e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks the fields of a recognized date against the ranges that its formatter enforces, so that most malformed
+     * dates are rejected without the formatter throwing an exception. Only dates the formatter would certainly reject
+     * are refused: an hour past 24, or 24 with minutes or seconds, minutes or seconds past 59, and a day of the month
+     * of 0 or past 31. An ISO-8601 instant must also have a month from 1 to 12 and an hour before 24. An IMF-fixdate,
+     * whose names are always English, must also have valid day and month names, ignoring case, and the day name must
+     * agree with the date after the day of the month is reduced to the last day of the month, as the formatter does.
+     *
+     * @param format the format returned by {@link #recognize(CharSequence, int, int, int)}
+     * @return whether the formatter might accept the date
+     */
+    static boolean plausible(final int format, final CharSequence h, final int start, final int end) {
+        if (format == ISO) {
+            final int month = twoDigits(h, start + 5);
+            final int day = twoDigits(h, start + 8);
+            return month >= 1 && month <= 12 && day >= 1 && day <= 31
+                    && twoDigits(h, start + 11) <= 23 && twoDigits(h, start + 14) <= 59 && twoDigits(h, start + 17) <= 59;
+        }
+
+        // Every other format has a time of H:mm or H:mm:ss, and nothing else before it contains a colon
+        int colon = start;
+        while (h.charAt(colon) != ':') colon++;
+        int p = colon;
+        while (isDigit(h.charAt(p - 1))) p--;
+        final int hour = value(h, p, colon);
+        final int minute = twoDigits(h, colon + 1);
+        final int second = colon + 3 < end && h.charAt(colon + 3) == ':' ? twoDigits(h, colon + 4) : 0;
+        if (hour > 24 || minute > 59 || second > 59 || hour == 24 && (minute != 0 || second != 0)) return false;
+
+        final int dayStart;
+        final int dayEnd;
+        if (format == ASCTIME) {
+            // The day is separated from the hour by a single space
+            dayEnd = p - 1;
+            p = dayEnd;
+            while (isDigit(h.charAt(p - 1))) p--;
+            dayStart = p;
+        } else if (format == RFC_850) {
+            p = start;
+            while (h.charAt(p) != '-') p++;
+            dayEnd = p;
+            p = dayEnd;
+            while (p > start && isDigit(h.charAt(p - 1))) p--;
+            dayStart = p;
+        } else {
+            dayStart = h.charAt(start + 3) == ',' ? start + 5 : start;
+            p = dayStart;
+            while (isDigit(h.charAt(p))) p++;
+            dayEnd = p;
+        }
+        final int day = value(h, dayStart, dayEnd);
+        if (day < 1 || day > 31) return false;
+        if (format != IMF_FIXDATE) return true;
+
+        final int month = nameIgnoreCase(MONTHS, h, dayEnd + 1) + 1;
+        if (month < 1) return false;
+        if (dayStart == start) return true;
+        final int dayOfWeek = nameIgnoreCase(DAYS, h, start);
+        if (dayOfWeek < 0) return false;
+        final int year = twoDigits(h, dayEnd + 5) * 100 + twoDigits(h, dayEnd + 7);
+        final long epochDay = epochDay(year, month, Math.min(day, lengthOfMonth(year, month)));
+        return Math.floorMod(epochDay + 3L, 7L) == dayOfWeek;
+    }
+
+    /**
+     * Looks up a three-character name.
+     *
+     * @param names the packed names to search
+     * @param p     index of the first character
+     * @return index of the name, or -1 if it is not found
+     */
+    private static int name(final int[] names, final CharSequence h, final int p) {
+        final int key = h.charAt(p) << 16 | h.charAt(p + 1) << 8 | h.charAt(p + 2);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == key) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Looks up a three-character name, ignoring the case of ASCII letters.
+     *
+     * @param names the packed names to search
+     * @param p     index of the first character
+     * @return index of the name, or -1 if it is not found
+     */
+    private static int nameIgnoreCase(final int[] names, final CharSequence h, final int p) {
+        final int key = (h.charAt(p) & ~0x20) << 16 | (h.charAt(p + 1) | 0x20) << 8 | (h.charAt(p + 2) | 0x20);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == key) return i;
+        }
+        return -1;
+    }
+
+    private static int[] keys(final String... names) {
+        final int[] keys = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = names[i].charAt(0) << 16 | names[i].charAt(1) << 8 | names[i].charAt(2);
+        }
+        return keys;
+    }
+
+    /**
+     * Reads a run of digits, saturating at a value too large for any date field.
+     */
+    private static int value(final CharSequence h, final int start, final int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = Math.min(value * 10 + h.charAt(i) - '0', 1000);
+        }
+        return value;
+    }
+
+    /**
+     * Reads two digits.
+     *
+     * @return the value, or a negative number if either character is not a digit
+     */
+    private static int twoDigits(final CharSequence h, final int p) {
+        final int tens = h.charAt(p) - '0';
+        final int ones = h.charAt(p + 1) - '0';
+        return tens < 0 || tens > 9 || ones < 0 || ones > 9 ? -1 : tens * 10 + ones;
+    }
+
+    private static int lengthOfMonth(final int year, final int month) {
+        if (month == 2) {
+            return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar, for a validated date.
+     */
+    private static long epochDay(final int year, final int month, final int day) {
+        // Count years from March, so the leap day falls at the end of the year
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = Math.floorDiv(y, 400);
+        final int yearOfEra = y - era * 400;
+        final int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468L;
+    }
+
+    /**
+     * Continues after a one- or two-digit day of the month, where the separator decides between IMF-fixdate and
+     * RFC 850.
+     *
+     * @param p index of the separator following the day
+     */
+    private static int day(final CharSequence h, final int p, final int end, final int formats) {
+        if (p == end) return 0;
+        final char s = h.charAt(p);
+        if (isSpace(s)) {
+            return (formats & IMF_FIXDATE) != 0 && imfFixdate(h, p + 1, end) ? IMF_FIXDATE : 0;
+        } else if (s == '-') {
+            return (formats & RFC_850) != 0 && rfc850(h, p + 1, end) ? RFC_850 : 0;
+        } else {
+            return 0;
+        }
+    }
+
+    /** Matches {@code \w{3}\s\d{4}\s} time {@code \sGMT} at the month. */
+    private static boolean imfFixdate(final CharSequence h, final int p, final int end) {
+        int i = word(h, p, end);
+        if (i - p != 3 || i == end || !isSpace(h.charAt(i))) return false;
+        final int year = i + 1;
+        i = digits(h, year, end);
+        if (i - year != 4 || i == end || !isSpace(h.charAt(i))) return false;
+        i = time(h, i + 1, end);
+        return i != -1 && end - i == 4 && isSpace(h.charAt(i))
+                && h.charAt(i + 1) == 'G' && h.charAt(i + 2) == 'M' && h.charAt(i + 3) == 'T';
+    }
+
+    /** Matches {@code \w{3}-\d{2}\s} time {@code \s\w+} at the month. */
+    private static boolean rfc850(final CharSequence h, final int p, final int end) {
+        int i = word(h, p, end);
+        if (i - p != 3 || i == end || h.charAt(i) != '-') return false;
+        final int year = i + 1;
+        i = digits(h, year, end);
+        if (i - year != 2 || i == end || !isSpace(h.charAt(i))) return false;
+        i = time(h, i + 1, end);
+        return i != -1 && i + 1 < end && isSpace(h.charAt(i)) && word(h, i + 1, end) == end;
+    }
+
+    /**
+     * Matches the remainder of an asctime date after the first three-letter word. That word is the day name if
+     * another three-letter word follows, otherwise it is the month.
+     *
+     * @param p index of the whitespace following the first word
+     */
+    private static boolean asctime(final CharSequence h, final int p, final int end) {
+        final int q = spaces(h, p, end);
+        if (asctimeDay(h, q, end)) return true;
+        final int i = word(h, q, end);
+        return i - q == 3 && i < end && isSpace(h.charAt(i)) && asctimeDay(h, spaces(h, i, end), end);
+    }
+
+    /** Matches {@code \d+\s} time {@code \s+\d{4}} at the day of the month. */
+    private static boolean asctimeDay(final CharSequence h, final int p, final int end) {
+        int i = digits(h, p, end);
+        if (i == p || i == end || !isSpace(h.charAt(i))) return false;
+        i = time(h, i + 1, end);
+        if (i == -1 || i == end || !isSpace(h.charAt(i))) return false;
+        i = spaces(h, i, end);
+        return end - i == 4 && digits(h, i, end) == end;
+    }
+
+    /** Matches {@code -\d{2}T\d{2}:\d{2}:\d{2}(\.(\d{3}){1,3})?Z} after the year and first hyphen. */
+    private static boolean iso(final CharSequence h, final int p, final int end) {
+        // Fixed positions through the seconds: "MM-ddTHH:mm:ss"
+        if (end - p < 15) return false;
+        for (int i = 0; i < ISO_LAYOUT.length(); i++) {
+            final char c = h.charAt(p + i);
+            final char l = ISO_LAYOUT.charAt(i);
+            if (l == '0' ? !isDigit(c) : c != l) return false;
+        }
+        int i = p + ISO_LAYOUT.length();
+        if (h.charAt(i) == '.') {
+            final int fraction = digits(h, i + 1, end);
+            final int n = fraction - i - 1;
+            if (n != 3 && n != 6 && n != 9) return false;
+            i = fraction;
+        }
+        return end - i == 1 && h.charAt(i) == 'Z';
+    }
+
+    /**
+     * Matches {@code \d{1,2}:\d{2}(:\d{2})?}.
+     *
+     * @return index after the time, or -1 if there is no match
+     */
+    private static int time(final CharSequence h, final int p, final int end) {
+        final int hour = digits(h, p, end);
+        if (hour == p || hour - p > 2 || hour == end || h.charAt(hour) != ':') return -1;
+        final int minute = digits(h, hour + 1, end);
+        if (minute - hour != 3) return -1;
+        if (minute < end && h.charAt(minute) == ':') {
+            final int second = digits(h, minute + 1, end);
+            return second - minute == 3 ? second : -1;
+        }
+        return minute;
+    }
+
+    /** Index of the first non-digit at or after {@code p}. */
+    private static int digits(final CharSequence h, int p, final int end) {
+        while (p < end && isDigit(h.charAt(p))) p++;
+        return p;
+    }
+
+    /** Index of the first non-word character at or after {@code p}. */
+    private static int word(final CharSequence h, int p, final int end) {
+        while (p < end && isWord(h.charAt(p))) p++;
+        return p;
+    }
+
+    /** Index of the first non-whitespace character at or after {@code p}. */
+    private static int spaces(final CharSequence h, int p, final int end) {
+        while (p < end && isSpace(h.charAt(p))) p++;
+        return p;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /** Same as the regular expression {@code \w}. */
+    private static boolean isWord(final char c) {
+        return isDigit(c) || isLetter(c) || c == '_';
+    }
+
+    /** Same as the regular expression {@code \s}. */
+    private static boolean isSpace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
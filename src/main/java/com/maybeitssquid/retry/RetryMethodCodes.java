@@ -0,0 +1,206 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Decides whether a retry is allowable based on both the HTTP request method and the response status code, so that
+ * one retry configuration can serve a client that issues requests with several methods. By default, the
+ * {@linkplain Method#idempotent() idempotent methods} of section 9.2.2 of
+ * <a href="https://www.rfc-editor.org/rfc/rfc9110.html#section-9.2.2">RFC-9110</a> follow
+ * {@link RetryStatusCodes#idempotent(int...)} and all other methods follow
+ * {@link RetryStatusCodes#nonIdempotent(int...)}.
+ * <p>
+ * The decisions for every method are copied into one matrix when the instance is created, a row of status code bits
+ * for each method, so each decision is a single array lookup.
+ */
+public final class RetryMethodCodes {
+
+    /**
+     * HTTP request methods with their own row of decisions.
+     */
+    public enum Method {
+        /** Idempotent and safe. */
+        GET(true),
+        /** Idempotent and safe. */
+        HEAD(true),
+        /** Idempotent and safe. */
+        OPTIONS(true),
+        /** Idempotent and safe. */
+        TRACE(true),
+        /** Idempotent. */
+        PUT(true),
+        /** Idempotent. */
+        DELETE(true),
+        /** Not idempotent. */
+        POST(false),
+        /** Not idempotent. */
+        PATCH(false),
+        /** Not idempotent. */
+        CONNECT(false),
+        /** Any other method, which is not known to be idempotent. */
+        OTHER(false);
+
+        private final boolean idempotent;
+
+        Method(final boolean idempotent) {
+            this.idempotent = idempotent;
+        }
+
+        /**
+         * Returns whether RFC 9110 defines the method as idempotent.
+         *
+         * @return whether repeating the request has the same effect as sending it once
+         */
+        public boolean idempotent() {
+            return this.idempotent;
+        }
+
+        /**
+         * Returns the method with a name. Method names are case-sensitive.
+         *
+         * @param name the method name, such as {@code "GET"}
+         * @return the method, or {@link #OTHER} if the name is not a method with its own row
+         */
+        public static Method of(final String name) {
+            if (name == null) return OTHER;
+            switch (name) {
+                case "GET":
+                    return GET;
+                case "HEAD":
+                    return HEAD;
+                case "OPTIONS":
+                    return OPTIONS;
+                case "TRACE":
+                    return TRACE;
+                case "PUT":
+                    return PUT;
+                case "DELETE":
+                    return DELETE;
+                case "POST":
+                    return POST;
+                case "PATCH":
+                    return PATCH;
+                case "CONNECT":
+                    return CONNECT;
+                default:
+                    return OTHER;
+            }
+        }
+    }
+
+    private static final Method[] METHODS = Method.values();
+
+    private static final RetryMethodCodes STANDARD = of(RetryStatusCodes.idempotent(), RetryStatusCodes.nonIdempotent());
+
+    /**
+     * The decisions for each method, in method order.
+     */
+    private final RetryStatusCodes[] codes;
+
+    /**
+     * The decisions for each method, {@link RetryStatusCodes#WORDS} words to a row, in method order.
+     */
+    private final long[] matrix;
+
+    private RetryMethodCodes(final RetryStatusCodes[] codes) {
+        this.codes = codes;
+        this.matrix = new long[METHODS.length * RetryStatusCodes.WORDS];
+        for (int m = 0; m < METHODS.length; m++) {
+            System.arraycopy(codes[m].words(), 0, this.matrix, m * RetryStatusCodes.WORDS, RetryStatusCodes.WORDS);
+        }
+    }
+
+    /**
+     * Returns decisions following RFC 9110: the default decisions of {@link RetryStatusCodes#idempotent(int...)} for
+     * idempotent methods and of {@link RetryStatusCodes#nonIdempotent(int...)} for all others.
+     *
+     * @return shared decisions by method and status code
+     */
+    public static RetryMethodCodes standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Returns decisions that follow one predicate for the idempotent methods and another for all others.
+     *
+     * @param idempotent    the decisions for idempotent methods
+     * @param nonIdempotent the decisions for all other methods
+     * @return decisions by method and status code
+     */
+    public static RetryMethodCodes of(final RetryStatusCodes idempotent, final RetryStatusCodes nonIdempotent) {
+        Objects.requireNonNull(idempotent, "idempotent");
+        Objects.requireNonNull(nonIdempotent, "nonIdempotent");
+        final RetryStatusCodes[] codes = new RetryStatusCodes[METHODS.length];
+        for (final Method method : METHODS) {
+            codes[method.ordinal()] = method.idempotent() ? idempotent : nonIdempotent;
+        }
+        return new RetryMethodCodes(codes);
+    }
+
+    /**
+     * Returns a copy with different decisions for one method.
+     *
+     * @param method the method
+     * @param codes  the decisions for the method
+     * @return decisions by method and status code
+     */
+    public RetryMethodCodes withMethod(final Method method, final RetryStatusCodes codes) {
+        Objects.requireNonNull(codes, "codes");
+        final RetryStatusCodes[] copy = Arrays.copyOf(this.codes, METHODS.length);
+        copy[method.ordinal()] = codes;
+        return new RetryMethodCodes(copy);
+    }
+
+    /**
+     * Returns the decisions for one method, such as to configure a retry used only with that method.
+     *
+     * @param method the method
+     * @return the decisions for the method
+     */
+    public RetryStatusCodes forMethod(final Method method) {
+        return this.codes[method.ordinal()];
+    }
+
+    /**
+     * Returns whether the status code allows a retry of a request with the method.
+     *
+     * @param method the request method
+     * @param code   the status code to check
+     * @return whether the status code allows a retry
+     */
+    public boolean retries(final Method method, final int code) {
+        return Integer.compareUnsigned(code, RetryStatusCodes.BITS) < 0
+                && (this.matrix[method.ordinal() * RetryStatusCodes.WORDS + (code >>> 6)] & 1L << code) != 0L;
+    }
+
+    /**
+     * Returns whether the status code allows a retry of a request with the method.
+     *
+     * @param method the request method name, such as {@code "GET"}
+     * @param code   the status code to check
+     * @return whether the status code allows a retry
+     */
+    public boolean retries(final String method, final int code) {
+        return retries(Method.of(method), code);
+    }
+
+    /**
+     * Returns a predicate on responses, for a retry configuration shared by requests with any method.
+     *
+     * @param method finds the method of the request that produced a response, or {@code null} if it is not known, which
+     *               is treated as {@link Method#OTHER}
+     * @return predicate that returns whether the response status allows a retry of its request
+     */
+    public Predicate<HttpServletResponse> predicate(final Function<? super HttpServletResponse, Method> method) {
+        Objects.requireNonNull(method, "method");
+        return response -> {
+            final Method m = method.apply(response);
+            return retries(m == null ? Method.OTHER : m, response.getStatus());
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * Retry decisions that can be changed at runtime, such as to tune retries during an incident without rebuilding
+ * every retry configured with them. The policy holds the {@link RetryStatusCodes} to retry and an optional
+ * {@link LimitRetryAfter} maximum as one immutable snapshot, and an update replaces the snapshot with a single atomic
+ * swap. Each decision reads the snapshot once, so it sees either the old policy or the new one, never a mix, and
+ * never takes a lock.
+ * <p>
+ * Each decision on a response is remembered, so that {@link #waitFor(HttpServletResponse)} computes the wait for a
+ * retried response from the same snapshot as the decision: a response retried without a maximum is not made to wait
+ * by its header even if a maximum is set before the wait, and a response retried within a maximum waits no longer than
+ * that maximum even if it is raised or removed before the wait.
+ */
+public final class RetryPolicy implements Predicate<HttpServletResponse> {
+
+    /**
+     * One version of the policy.
+     */
+    private static final class Snapshot {
+        private final RetryStatusCodes codes;
+
+        /**
+         * The limit, or {@code null} if a {@code Retry-After} header is not read.
+         */
+        private final LimitRetryAfter limit;
+
+        private Snapshot(final RetryStatusCodes codes, final LimitRetryAfter limit) {
+            this.codes = codes;
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * The result of each decision, shared by every snapshot.
+     */
+    private final RetryAfterMemo memo;
+
+    private final AtomicReference<Snapshot> current;
+
+    private RetryPolicy(final RetryStatusCodes codes, final Duration maximum) {
+        this.memo = RetryAfterMemo.of(RetryAfterParser.extended());
+        this.current = new AtomicReference<>(snapshot(codes, maximum));
+    }
+
+    /**
+     * Creates a policy that retries status codes without reading {@code Retry-After} headers.
+     *
+     * @param codes the status codes to retry
+     * @return a policy that can be updated
+     */
+    public static RetryPolicy of(final RetryStatusCodes codes) {
+        return new RetryPolicy(codes, null);
+    }
+
+    /**
+     * Creates a policy that retries status codes unless a {@code Retry-After} header asks for too long a wait.
+     *
+     * @param codes   the status codes to retry
+     * @param maximum the maximum wait interval
+     * @return a policy that can be updated
+     */
+    public static RetryPolicy of(final RetryStatusCodes codes, final Duration maximum) {
+        return new RetryPolicy(codes, Objects.requireNonNull(maximum, "maximum"));
+    }
+
+    private Snapshot snapshot(final RetryStatusCodes codes, final Duration maximum) {
+        Objects.requireNonNull(codes, "codes");
+        return new Snapshot(codes, maximum == null ? null : new LimitRetryAfter(maximum, this.memo, codes::retries));
+    }
+
+    /**
+     * Replaces the status codes to retry, keeping the maximum wait.
+     *
+     * @param codes the status codes to retry
+     */
+    public void updateCodes(final RetryStatusCodes codes) {
+        this.current.updateAndGet(s -> snapshot(codes, s.limit == null ? null : s.limit.getMaximum()));
+    }
+
+    /**
+     * Replaces the maximum wait interval, keeping the status codes.
+     *
+     * @param maximum the maximum wait interval, or {@code null} to stop reading {@code Retry-After} headers
+     */
+    public void updateMaximum(final Duration maximum) {
+        this.current.updateAndGet(s -> snapshot(s.codes, maximum));
+    }
+
+    /**
+     * Replaces the whole policy.
+     *
+     * @param codes   the status codes to retry
+     * @param maximum the maximum wait interval, or {@code null} to stop reading {@code Retry-After} headers
+     */
+    public void update(final RetryStatusCodes codes, final Duration maximum) {
+        this.current.set(snapshot(codes, maximum));
+    }
+
+    /**
+     * Gets the status codes currently retried.
+     *
+     * @return the status codes to retry
+     */
+    public RetryStatusCodes getCodes() {
+        return this.current.get().codes;
+    }
+
+    /**
+     * Gets the current maximum wait interval.
+     *
+     * @return the maximum wait interval, or empty if {@code Retry-After} headers are not read
+     */
+    public Optional<Duration> getMaximum() {
+        final LimitRetryAfter limit = this.current.get().limit;
+        return limit == null ? Optional.empty() : Optional.of(limit.getMaximum());
+    }
+
+    /**
+     * Gets the wait for a retried response, as decided by the snapshot that allowed the retry. If the decision is no
+     * longer remembered, such as when many responses are retried at once, the header is heeded only within the
+     * current maximum.
+     *
+     * @param response the HTTP response
+     * @return duration until a retry is allowed, or empty if the header is not heeded
+     */
+    public Optional<Duration> waitFor(final HttpServletResponse response) {
+        final OptionalLong decided = this.memo.takeRemembered(response);
+        if (decided.isPresent()) {
+            final long millis = decided.getAsLong();
+            return millis == RetryAfterParser.NONE ? Optional.empty() : Optional.of(Duration.ofMillis(millis));
+        }
+        final LimitRetryAfter limit = this.current.get().limit;
+        if (limit == null) return Optional.empty();
+        return this.memo.apply(response).map(d -> d.compareTo(limit.getMaximum()) > 0 ? limit.getMaximum() : d);
+    }
+
+    /**
+     * Tests whether the current policy allows a retry.
+     *
+     * @param t the HTTP response
+     * @return whether the status code is retried and any {@code Retry-After} is within the maximum
+     */
+    @Override
+    public boolean test(final HttpServletResponse t) {
+        final Snapshot snapshot = this.current.get();
+        if (!snapshot.codes.test(t)) return false;
+        if (snapshot.limit != null) return snapshot.limit.test(t);
+        // Remember that this retry was allowed without reading the header, so the wait ignores it too
+        this.memo.remember(t, RetryAfterParser.NONE);
+        return true;
+    }
+}
@@ -3,6 +3,7 @@ package com.maybeitssquid.retry;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.util.Arrays;
+import java.util.Objects;
 import java.util.function.Predicate;
 
 /**
@@ -40,55 +41,183 @@ public class RetryStatusCodes implements Predicate<HttpServletResponse> {
      */
     public static final int SC_TOO_MANY_REQUESTS = 429;
 
+    /**
+     * The lowest valid status code, because 0xx status codes are unused.
+     */
+    static final int FIRST = 100;
+
     /**
      * The number of valid status codes
      */
-    private static final int CODES = 500;
+    static final int CODES = 500;
+
+    /**
+     * The number of words in a table, enough for a bit for each code from 0 through 639.
+     */
+    static final int WORDS = (FIRST + CODES + Long.SIZE - 1) / Long.SIZE;
 
     /**
-     * Offset applied to responses table entry because 0xx status codes are unused.
+     * The number of codes with a bit in a table. Bits for codes that are not valid are never set.
      */
-    private static final int OFFSET = 100;
+    static final int BITS = WORDS * Long.SIZE;
 
     /**
-     * Default decisions for non-idempotent retry. Note that index is {@link #OFFSET} from status codes.
+     * Default decisions for idempotent retry, one bit per status code.
      */
-    private static final boolean[] IDEMPOTENT_DEFAULTS = new boolean[CODES];
+    private static final long[] IDEMPOTENT_DEFAULTS = new long[WORDS];
 
     /**
-     * Default decisions for non-idempotent retry. Note that index is {@link #OFFSET} from status codes.
+     * Default decisions for non-idempotent retry, one bit per status code.
      */
-    private static final boolean[] NON_IDEMPOTENT_DEFAULTS = new boolean[CODES];
+    private static final long[] NON_IDEMPOTENT_DEFAULTS = new long[WORDS];
+
+    /**
+     * Status codes where a {@code Retry-After} header is meaningful, one bit per status code.
+     */
+    private static final long[] RETRY_AFTER_STATUSES = new long[WORDS];
 
     static {
         // 1xx are incomplete results, so the “retry” is to continue processing
-        Arrays.fill(NON_IDEMPOTENT_DEFAULTS, 100 - OFFSET, 199 - OFFSET, true);
+        fill(NON_IDEMPOTENT_DEFAULTS, 100, 199, true);
         // 3xx are redirections, so the “retry” is to follow the redirection to a new target
-        Arrays.fill(NON_IDEMPOTENT_DEFAULTS, 300 - OFFSET, 399 - OFFSET, true);
+        fill(NON_IDEMPOTENT_DEFAULTS, 300, 399, true);
 
         // 4xx is client error, but there a few where retry should be safe
 
         // 408 is request timeout, server confirming it did not receive the request so OK to retry
-        NON_IDEMPOTENT_DEFAULTS[HttpServletResponse.SC_REQUEST_TIMEOUT - OFFSET] = true;
+        set(NON_IDEMPOTENT_DEFAULTS, HttpServletResponse.SC_REQUEST_TIMEOUT, true);
         // 409 is conflict in resource state, it may resolve upon retry
-        NON_IDEMPOTENT_DEFAULTS[HttpServletResponse.SC_CONFLICT - OFFSET] = true;
+        set(NON_IDEMPOTENT_DEFAULTS, HttpServletResponse.SC_CONFLICT, true);
         // 425 is due to risk of replay of data during TLS negotiation, expect server to ensure safe retry
-        NON_IDEMPOTENT_DEFAULTS[SC_TOO_EARLY - OFFSET] = true;
+        set(NON_IDEMPOTENT_DEFAULTS, SC_TOO_EARLY, true);
         // 429 is server-managed throttling of the client, expect server to ensure safe retry
-        NON_IDEMPOTENT_DEFAULTS[SC_TOO_MANY_REQUESTS - OFFSET] = true;
+        set(NON_IDEMPOTENT_DEFAULTS, SC_TOO_MANY_REQUESTS, true);
 
 
-        System.arraycopy(NON_IDEMPOTENT_DEFAULTS, 0, IDEMPOTENT_DEFAULTS, 0, CODES);
+        System.arraycopy(NON_IDEMPOTENT_DEFAULTS, 0, IDEMPOTENT_DEFAULTS, 0, WORDS);
         // 5xx codes are retried, with exceptions
-        Arrays.fill(IDEMPOTENT_DEFAULTS, 500 - OFFSET, 599 - OFFSET, true);
-        IDEMPOTENT_DEFAULTS[HttpServletResponse.SC_NOT_IMPLEMENTED - OFFSET] = false;
-        IDEMPOTENT_DEFAULTS[HttpServletResponse.SC_HTTP_VERSION_NOT_SUPPORTED- OFFSET] = false;
+        fill(IDEMPOTENT_DEFAULTS, 500, 599, true);
+        set(IDEMPOTENT_DEFAULTS, HttpServletResponse.SC_NOT_IMPLEMENTED, false);
+        set(IDEMPOTENT_DEFAULTS, HttpServletResponse.SC_HTTP_VERSION_NOT_SUPPORTED, false);
+
+        // RFC 9110 defines Retry-After for redirections and 503, and RFC 6585 for 429
+        fill(RETRY_AFTER_STATUSES, 300, 400, true);
+        set(RETRY_AFTER_STATUSES, SC_TOO_MANY_REQUESTS, true);
+        set(RETRY_AFTER_STATUSES, HttpServletResponse.SC_SERVICE_UNAVAILABLE, true);
+    }
+
+    /**
+     * The default tables, pooled so that customized instances with the same decisions share them.
+     */
+    private static final StatusTablePool.Table IDEMPOTENT = StatusTablePool.intern(IDEMPOTENT_DEFAULTS);
+
+    private static final StatusTablePool.Table NON_IDEMPOTENT = StatusTablePool.intern(NON_IDEMPOTENT_DEFAULTS);
+
+    /**
+     * Shared instance for {@link #retryAfterStatuses()}.
+     */
+    private static final RetryStatusCodes RETRY_AFTER =
+            new RetryStatusCodes(StatusTablePool.intern(RETRY_AFTER_STATUSES));
+
+    /**
+     * The footprint of the tables shared by all instances.
+     *
+     * @see #poolReport()
+     */
+    public static final class PoolReport {
+        private final int tables;
+        private final long requests;
+        private final long shared;
+        private final long tableBytes;
+
+        PoolReport(final int tables, final long requests, final long shared, final long tableBytes) {
+            this.tables = tables;
+            this.requests = requests;
+            this.shared = shared;
+            this.tableBytes = tableBytes;
+        }
+
+        /**
+         * Gets the number of distinct tables in use.
+         *
+         * @return the number of tables in the pool
+         */
+        public int getTables() {
+            return this.tables;
+        }
+
+        /**
+         * Gets the number of tables created for new instances, including those replaced by a shared table.
+         *
+         * @return the number of tables interned since the pool was created
+         */
+        public long getRequests() {
+            return this.requests;
+        }
+
+        /**
+         * Gets the number of new instances that shared an existing table instead of keeping their own.
+         *
+         * @return the number of tables not kept because an identical one was pooled
+         */
+        public long getShared() {
+            return this.shared;
+        }
+
+        /**
+         * Gets the estimated size of the tables in the pool.
+         *
+         * @return the estimated bytes held by the pooled tables
+         */
+        public long getBytes() {
+            return this.tables * this.tableBytes;
+        }
+
+        /**
+         * Gets the estimated size of the tables that were not kept because an identical one was shared.
+         *
+         * @return the estimated bytes saved by sharing since the pool was created
+         */
+        public long getSavedBytes() {
+            return this.shared * this.tableBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "tables=" + this.tables + " (" + getBytes() + " bytes), requests=" + this.requests
+                    + ", shared=" + this.shared + " (" + getSavedBytes() + " bytes saved)";
+        }
+    }
+
+    /**
+     * A predicate that counts its decisions.
+     */
+    private static final class Counted extends RetryStatusCodes {
+        private final RetryStatusCounters counters;
+
+        private Counted(final StatusTablePool.Table table, final RetryStatusCounters counters) {
+            super(table);
+            this.counters = counters;
+        }
+
+        @Override
+        public boolean test(final HttpServletResponse t) {
+            final int code = t.getStatus();
+            final boolean retries = retries(code);
+            this.counters.record(code, retries);
+            return retries;
+        }
     }
 
     /**
-     * Decisions for retry
+     * The pooled table of decisions, held so that it stays in the pool while this instance is in use
      */
-    private final boolean[] responses;
+    private final StatusTablePool.Table table;
+
+    /**
+     * Decisions for retry, one bit per status code, never modified once constructed
+     */
+    private final long[] responses;
 
     /**
      * Creates a predicate to decide whether a retry is allowable based on the HTTP response code.
@@ -100,13 +229,15 @@ public class RetryStatusCodes implements Predicate<HttpServletResponse> {
      */
     private RetryStatusCodes(final boolean idempotent, final int... additional) {
         if (additional == null || additional.length == 0) {
-            this.responses = idempotent ? IDEMPOTENT_DEFAULTS : NON_IDEMPOTENT_DEFAULTS;
+            this.table = idempotent ? IDEMPOTENT : NON_IDEMPOTENT;
         } else {
-            this.responses = Arrays.copyOf(idempotent ? IDEMPOTENT_DEFAULTS : NON_IDEMPOTENT_DEFAULTS, CODES);
+            final long[] words = Arrays.copyOf(idempotent ? IDEMPOTENT_DEFAULTS : NON_IDEMPOTENT_DEFAULTS, WORDS);
             for (int r : additional) {
-                this.responses[r - OFFSET] = true;
+                set(words, r, true);
             }
+            this.table = StatusTablePool.intern(words);
         }
+        this.responses = this.table.words;
     }
 
     /**
@@ -116,12 +247,87 @@ public class RetryStatusCodes implements Predicate<HttpServletResponse> {
      * @throws ArrayIndexOutOfBoundsException if any of the retry status codes are out of the range 100..599
      */
     private RetryStatusCodes(final int... only) {
-        this.responses = new boolean[CODES];
+        final long[] words = new long[WORDS];
         for (int r : only) {
-            this.responses[r - OFFSET] = true;
+            set(words, r, true);
+        }
+        this.table = StatusTablePool.intern(words);
+        this.responses = this.table.words;
+    }
+
+    /**
+     * Create an instance with a table of decisions.
+     *
+     * @param table the pooled decisions
+     */
+    private RetryStatusCodes(final StatusTablePool.Table table) {
+        this.table = table;
+        this.responses = table.words;
+    }
+
+    /**
+     * Sets the decision for a status code in a table under construction.
+     *
+     * @param words    the table
+     * @param code     the status code
+     * @param decision whether the code is retried
+     * @throws ArrayIndexOutOfBoundsException if the status code is out of the range 100..599
+     */
+    private static void set(final long[] words, final int code, final boolean decision) {
+        if (code < FIRST || code >= FIRST + CODES) {
+            throw new ArrayIndexOutOfBoundsException("Status code out of range: " + code);
+        }
+        if (decision) {
+            words[code >>> 6] |= 1L << code;
+        } else {
+            words[code >>> 6] &= ~(1L << code);
+        }
+    }
+
+    /**
+     * Sets the decision for a range of status codes in a table under construction.
+     *
+     * @param words    the table
+     * @param from     the first status code, inclusive
+     * @param to       the last status code, exclusive
+     * @param decision whether the codes are retried
+     */
+    private static void fill(final long[] words, final int from, final int to, final boolean decision) {
+        for (int code = from; code < to; code++) {
+            set(words, code, decision);
         }
     }
 
+    /**
+     * Returns the decisions, one bit per status code.
+     *
+     * @return the table, not copied, which must not be modified
+     */
+    long[] words() {
+        return this.responses;
+    }
+
+    /**
+     * Returns a predicate for the status codes where a {@code Retry-After} header is meaningful: redirections (3xx),
+     * {@link #SC_TOO_MANY_REQUESTS 429} and {@link HttpServletResponse#SC_SERVICE_UNAVAILABLE 503}. This is the
+     * default filter of {@link LimitRetryAfter}, which does not read the header of any other response.
+     *
+     * @return predicate that returns {@code true} for responses that may carry a meaningful {@code Retry-After}
+     */
+    public static RetryStatusCodes retryAfterStatuses() {
+        return RETRY_AFTER;
+    }
+
+    /**
+     * Reports the footprint of the decision tables. Instances with the same decisions share one table, however they
+     * were created, so a service that creates an instance per host keeps only one table per distinct policy.
+     *
+     * @return the current footprint of the tables
+     */
+    public static PoolReport poolReport() {
+        return StatusTablePool.report();
+    }
+
     /**
      * Returns a predicate with default decisions for an idempotent service. Idempotent services allow retries of 5xx
      * HTTP status codes except for {@link HttpServletResponse#SC_NOT_IMPLEMENTED} and
@@ -156,17 +362,26 @@ public class RetryStatusCodes implements Predicate<HttpServletResponse> {
     }
 
     /**
-     * Returns whether the status code allows a retry.
+     * Returns a predicate with the same decisions that counts each decision it makes on a response. Only
+     * {@link #test(HttpServletResponse)} is counted; {@link #retries(int)} is not, so a filter on status codes such as
+     * that of {@link LimitRetryAfter} does not count the same response twice.
+     *
+     * @param counters the counters to record decisions in, which may be shared by several predicates
+     * @return predicate that counts its decisions
+     */
+    public RetryStatusCodes counted(final RetryStatusCounters counters) {
+        return new Counted(this.table, Objects.requireNonNull(counters, "counters"));
+    }
+
+    /**
+     * Returns whether the status code allows a retry. Codes outside the table, including negative codes, are rejected
+     * by a single unsigned comparison, so a bogus status costs no more than a valid one.
      *
      * @param code the status code to check.
      * @return whether the status code allows a retry.
      */
     public boolean retries(final int code) {
-        try {
-            return this.responses[code - OFFSET];
-        } catch (final IndexOutOfBoundsException e) {
-            return false;
-        }
+        return Integer.compareUnsigned(code, BITS) < 0 && (this.responses[code >>> 6] & 1L << code) != 0L;
     }
 
     /**
@@ -0,0 +1,125 @@
+package com.maybeitssquid.retry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of how often each status code led to a retry and how often to giving up, recorded by a
+ * {@linkplain RetryStatusCodes#counted(RetryStatusCounters) counted} predicate. Counters are {@link LongAdder}s, whose
+ * cells are striped across threads and padded to separate cache lines, so concurrent decisions on different cores do
+ * not contend. A counter is only created when its status code is first seen, so the counts cost nothing for codes a
+ * service never returns.
+ * <p>
+ * Codes outside the range of valid status codes, 100 through 599, share one pair of counters, reported under
+ * {@link #OUT_OF_RANGE}.
+ */
+public final class RetryStatusCounters {
+
+    /**
+     * The key under which decisions for codes outside the range of valid status codes, 100 through 599, are reported.
+     */
+    public static final int OUT_OF_RANGE = -1;
+
+    private final AtomicReferenceArray<LongAdder> retried = new AtomicReferenceArray<>(RetryStatusCodes.BITS + 1);
+
+    private final AtomicReferenceArray<LongAdder> gaveUp = new AtomicReferenceArray<>(RetryStatusCodes.BITS + 1);
+
+    /**
+     * Counts of decisions at one moment.
+     */
+    public static final class Snapshot {
+        private final Map<Integer, Long> retries;
+        private final Map<Integer, Long> giveUps;
+
+        private Snapshot(final Map<Integer, Long> retries, final Map<Integer, Long> giveUps) {
+            this.retries = Collections.unmodifiableMap(retries);
+            this.giveUps = Collections.unmodifiableMap(giveUps);
+        }
+
+        /**
+         * Gets the number of retries by status code.
+         *
+         * @return counts of retries, by status code in ascending order, omitting codes never retried
+         */
+        public Map<Integer, Long> getRetries() {
+            return this.retries;
+        }
+
+        /**
+         * Gets the number of responses not retried by status code.
+         *
+         * @return counts of responses given up on, by status code in ascending order, omitting codes never seen
+         */
+        public Map<Integer, Long> getGiveUps() {
+            return this.giveUps;
+        }
+
+        @Override
+        public String toString() {
+            return "retries=" + this.retries + ", giveUps=" + this.giveUps;
+        }
+    }
+
+    private static int index(final int code) {
+        return Integer.compareUnsigned(code - RetryStatusCodes.FIRST, RetryStatusCodes.CODES) < 0
+                ? code : RetryStatusCodes.BITS;
+    }
+
+    private static LongAdder adder(final AtomicReferenceArray<LongAdder> adders, final int index) {
+        final LongAdder adder = adders.get(index);
+        if (adder != null) return adder;
+        final LongAdder created = new LongAdder();
+        return adders.compareAndSet(index, null, created) ? created : adders.get(index);
+    }
+
+    /**
+     * Counts a decision.
+     *
+     * @param code    the status code
+     * @param retries whether the code was retried
+     */
+    void record(final int code, final boolean retries) {
+        adder(retries ? this.retried : this.gaveUp, index(code)).increment();
+    }
+
+    /**
+     * Returns the current counts. Decisions made while the snapshot is taken may or may not be included.
+     *
+     * @return the counts
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(counts(this.retried, false), counts(this.gaveUp, false));
+    }
+
+    /**
+     * Returns the current counts and resets them to zero. A decision made while the snapshot is taken is counted in
+     * this snapshot or the next, never both and never neither.
+     *
+     * @return the counts since the last reset
+     */
+    public Snapshot snapshotThenReset() {
+        return new Snapshot(counts(this.retried, true), counts(this.gaveUp, true));
+    }
+
+    /**
+     * Resets all counts to zero.
+     */
+    public void reset() {
+        counts(this.retried, true);
+        counts(this.gaveUp, true);
+    }
+
+    private static Map<Integer, Long> counts(final AtomicReferenceArray<LongAdder> adders, final boolean reset) {
+        final Map<Integer, Long> counts = new TreeMap<>();
+        for (int i = 0; i < adders.length(); i++) {
+            final LongAdder adder = adders.get(i);
+            if (adder == null) continue;
+            final long count = reset ? adder.sumThenReset() : adder.sum();
+            if (count != 0L) counts.put(i == RetryStatusCodes.BITS ? OUT_OF_RANGE : i, count);
+        }
+        return counts;
+    }
+}
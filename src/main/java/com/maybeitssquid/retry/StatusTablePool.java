@@ -0,0 +1,83 @@
+package com.maybeitssquid.retry;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Interns the decision tables of {@link RetryStatusCodes}, so that instances with the same decisions share one table
+ * however many are created, such as one per downstream host. The pool holds tables weakly, and a table is dropped
+ * once no instance uses it.
+ * <p>
+ * Tables are only interned when an instance is created, so the pool is guarded by a lock; decisions read the table
+ * directly and never touch the pool.
+ */
+final class StatusTablePool {
+
+    /**
+     * The estimated size in bytes of the words of one table, assuming a 16-byte array header.
+     */
+    static final long TABLE_BYTES = 16L + (long) RetryStatusCodes.WORDS * Long.BYTES;
+
+    /**
+     * A table of decisions compared by content. Instances hold the table to keep it in the pool.
+     */
+    static final class Table {
+        final long[] words;
+
+        private final int hash;
+
+        private Table(final long[] words) {
+            this.words = words;
+            this.hash = Arrays.hashCode(words);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Table && Arrays.equals(this.words, ((Table) o).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final Map<Table, WeakReference<Table>> POOL = new WeakHashMap<>();
+
+    private static long requests;
+
+    private static long shared;
+
+    private StatusTablePool() {
+    }
+
+    /**
+     * Returns the pooled table with the same decisions, adding the table to the pool if there is none.
+     *
+     * @param words the decisions, which must not be modified afterwards
+     * @return the shared table
+     */
+    static synchronized Table intern(final long[] words) {
+        final Table table = new Table(words);
+        requests++;
+        final WeakReference<Table> pooled = POOL.get(table);
+        final Table existing = pooled == null ? null : pooled.get();
+        if (existing != null) {
+            shared++;
+            return existing;
+        }
+        POOL.put(table, new WeakReference<>(table));
+        return table;
+    }
+
+    /**
+     * Reports the current footprint of the pool.
+     *
+     * @return the report
+     */
+    static synchronized RetryStatusCodes.PoolReport report() {
+        return new RetryStatusCodes.PoolReport(POOL.size(), requests, shared, TABLE_BYTES);
+    }
+}
@@ -0,0 +1,81 @@
+package com.maybeitssquid.retry;
+
+/**
+ * Word-at-a-time (SWAR) validation and conversion of short runs of ASCII digits, for the most common
+ * {@code Retry-After} header, a small integer number of seconds. Up to eight characters are packed into a
+ * {@code long}, one per byte with the first character in the lowest byte, and are checked and converted with a few
+ * arithmetic operations on the whole word instead of a branch and a multiplication per digit.
+ * <p>
+ * Headers held as bytes are read eight bytes at a time where the array or buffer allows, so they are not decoded one
+ * character at a time at all.
+ */
+final class SwarDigits {
+
+    /**
+     * The most digits that fit in a word.
+     */
+    static final int MAX_DIGITS = Long.BYTES;
+
+    /** The character '0' in every byte. */
+    private static final long ZEROS = 0x3030303030303030L;
+
+    /** Adding this to a byte sets its high bit if it is greater than '9'. */
+    private static final long ABOVE_NINE = 0x4646464646464646L;
+
+    /** The high bit of every byte. */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private SwarDigits() {
+    }
+
+    /**
+     * Converts one to {@link #MAX_DIGITS} ASCII digits.
+     *
+     * @param h     the header value
+     * @param start index of the first digit
+     * @param end   index after the last digit, at most {@link #MAX_DIGITS} after {@code start}
+     * @return the value, or -1 if any character is not an ASCII digit
+     */
+    static long parse(final CharSequence h, final int start, final int end) {
+        return parse(pack(h, start, end), end - start);
+    }
+
+    /**
+     * Packs characters into a word, the first in the lowest byte. A character outside ASCII makes the whole word
+     * invalid, so that it cannot be mistaken for a digit by dropping its high bits.
+     *
+     * @return the packed characters, or -1 if any is outside ASCII
+     */
+    static long pack(final CharSequence h, final int start, final int end) {
+        if (h instanceof AsciiSequence) return ((AsciiSequence) h).pack(start, end);
+        long word = 0L;
+        for (int i = end - 1; i >= start; i--) {
+            final char c = h.charAt(i);
+            if (c >= 0x80) return -1L;
+            word = word << 8 | c;
+        }
+        return word;
+    }
+
+    /**
+     * Validates and converts packed digits.
+     *
+     * @param word   the characters, the first in the lowest byte, with any unused high bytes zero
+     * @param digits the number of characters, from 1 to {@link #MAX_DIGITS}
+     * @return the value, or -1 if any character is not an ASCII digit
+     */
+    static long parse(long word, final int digits) {
+        if (digits < MAX_DIGITS) {
+            // Shift the digits to the high bytes, the least significant end, and pad with leading zeros
+            final int pad = (MAX_DIGITS - digits) << 3;
+            word = word << pad | ZEROS >>> (digits << 3);
+        }
+        // A byte below '0' sets its high bit when '0' is subtracted, and one above '9' when ABOVE_NINE is added
+        if ((((word - ZEROS) | (word + ABOVE_NINE)) & HIGH_BITS) != 0L) return -1L;
+        word -= ZEROS;
+        // Combine adjacent digits into pairs, then pairs into fours, then fours into the whole
+        word = word * 10L + (word >>> 8) & 0x00FF00FF00FF00FFL;
+        word = word * 100L + (word >>> 16) & 0x0000FFFF0000FFFFL;
+        return word * 10000L + (word >>> 32) & 0xFFFFFFFFL;
+    }
+}
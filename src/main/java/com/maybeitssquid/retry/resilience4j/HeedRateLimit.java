@@ -0,0 +1,68 @@
+package com.maybeitssquid.retry.resilience4j;
+
+import com.maybeitssquid.retry.RateLimitPacer;
+import io.github.resilience4j.core.IntervalBiFunction;
+import io.github.resilience4j.core.functions.Either;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Function that extends the wait interval specified by a wrapped {@link IntervalBiFunction} so that a retry does not
+ * spend the quota reported in rate limit headers faster than it resets. Each response is observed by a
+ * {@link RateLimitPacer}, and the wait is the maximum of the wait returned by the wrapped function and the spacing
+ * required by the pacer.
+ */
+public class HeedRateLimit implements IntervalBiFunction<HttpServletResponse> {
+
+    /**
+     * The pacer that observes the quota in each response.
+     */
+    private final RateLimitPacer pacer;
+
+    /**
+     * The wrapped function to determine the wait interval without considering the quota.
+     */
+    private final IntervalBiFunction<HttpServletResponse> wrapped;
+
+    /**
+     * Creates a wrapper.
+     *
+     * @param wrapped the existing bifunction to wrap.
+     * @param pacer   the pacer that observes the quota, which may be shared with other clients of the service.
+     */
+    public HeedRateLimit(final IntervalBiFunction<HttpServletResponse> wrapped, final RateLimitPacer pacer) {
+        this.wrapped = wrapped;
+        this.pacer = pacer;
+    }
+
+    /**
+     * Extends an {@link IntervalBiFunction} to heed the quota in rate limit headers.
+     *
+     * @param extending the function to extend.
+     * @param pacer     the pacer that observes the quota.
+     * @return a function that extends the wait interval to heed the quota.
+     */
+    public static HeedRateLimit heed(final IntervalBiFunction<HttpServletResponse> extending,
+                                     final RateLimitPacer pacer) {
+        return new HeedRateLimit(extending, pacer);
+    }
+
+    /**
+     * Observes the quota in an HTTP response, and computes the required wait interval.
+     *
+     * @param t the retry count, which is passed to the wrapped function.
+     * @param u the result to evaluate
+     * @return the maximum of the wait interval specified by the wrapped function and the spacing required by the
+     * quota.
+     */
+    @Override
+    public Long apply(final Integer t, final Either<Throwable, HttpServletResponse> u) {
+        final Long b = this.wrapped.apply(t, u);
+        if (u.isRight()) {
+            final long spacing = this.pacer.observe(u.get());
+            if (spacing > 0L && (b == null || spacing > b)) {
+                return spacing;
+            }
+        }
+        return b;
+    }
+}
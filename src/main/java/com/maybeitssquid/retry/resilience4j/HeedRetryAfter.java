@@ -1,6 +1,8 @@
 package com.maybeitssquid.retry.resilience4j;
 
+import com.maybeitssquid.retry.RetryAfterMemo;
 import com.maybeitssquid.retry.RetryAfterParser;
+import com.maybeitssquid.retry.RetryStatusCodes;
 import io.github.resilience4j.core.IntervalBiFunction;
 import io.github.resilience4j.core.functions.Either;
 import jakarta.servlet.http.HttpServletResponse;
@@ -8,6 +10,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.ToLongFunction;
 
 import static io.github.resilience4j.retry.RetryConfig.DEFAULT_WAIT_DURATION;
 
@@ -20,9 +24,9 @@ import static io.github.resilience4j.retry.RetryConfig.DEFAULT_WAIT_DURATION;
 public class HeedRetryAfter implements IntervalBiFunction<HttpServletResponse> {
 
     /**
-     * The parser to read Retry-After headers from the response.
+     * The parser to read Retry-After headers from the response, in milliseconds.
      */
-    private final Function<HttpServletResponse, Optional<Duration>> parser;
+    private final ToLongFunction<HttpServletResponse> parser;
 
     /**
      * The wrapped function to determine the wait interval without considering the header.
@@ -30,14 +34,37 @@ public class HeedRetryAfter implements IntervalBiFunction<HttpServletResponse> {
     private final IntervalBiFunction<HttpServletResponse> wrapped;
 
     /**
-     * Creates a wrapper using the extended header definitions.
+     * The status codes whose {@code Retry-After} header is read.
+     */
+    private final IntPredicate statuses;
+
+    /**
+     * Creates a wrapper using the given header parser. The header is only read for
+     * {@linkplain RetryStatusCodes#retryAfterStatuses() status codes where it is meaningful}.
      *
      * @param parser  the parser for headers, such as from {@link RetryAfterParser}.
      * @param wrapped the existing bifunction to wrap.
      */
     public HeedRetryAfter(final IntervalBiFunction<HttpServletResponse> wrapped, final Function<HttpServletResponse, Optional<Duration>> parser) {
+        this(wrapped, parser, RetryStatusCodes.retryAfterStatuses()::retries);
+    }
+
+    /**
+     * Creates a wrapper using the given header parser, reading the header only for responses whose status code passes
+     * a filter. If the parser is a {@link RetryAfterMemo}, the wait reuses the result remembered by a
+     * {@link com.maybeitssquid.retry.LimitRetryAfter} sharing the memo, when there is one, so the two should be given
+     * the same filter.
+     *
+     * @param parser   the parser for headers, such as from {@link RetryAfterParser}.
+     * @param wrapped  the existing bifunction to wrap.
+     * @param statuses the status codes whose header is read, such as {@link RetryStatusCodes#retries(int)}.
+     */
+    public HeedRetryAfter(final IntervalBiFunction<HttpServletResponse> wrapped,
+                          final Function<HttpServletResponse, Optional<Duration>> parser, final IntPredicate statuses) {
         this.wrapped = wrapped;
-        this.parser = parser;
+        this.statuses = statuses;
+        this.parser = parser instanceof RetryAfterMemo ? ((RetryAfterMemo) parser)::take
+                : RetryAfterParser.toMillis(parser);
     }
 
     /**
@@ -109,11 +136,12 @@ public class HeedRetryAfter implements IntervalBiFunction<HttpServletResponse> {
     @Override
     public Long apply(final Integer t, final Either<Throwable, HttpServletResponse> u) {
         final Long b = this.wrapped.apply(t, u);
-        if (u.isRight()) {
-            final Optional<Long> retryAfter = this.parser.apply(u.get()).map(Duration::toMillis);
-            return retryAfter.map(ra -> b == null ? ra : Long.max(ra, b)).orElse(b);
-        } else {
-            return b;
+        if (u.isRight() && (u.get() == null || this.statuses.test(u.get().getStatus()))) {
+            final long retryAfter = this.parser.applyAsLong(u.get());
+            if (retryAfter != RetryAfterParser.NONE && (b == null || retryAfter > b)) {
+                return retryAfter;
+            }
         }
+        return b;
     }
 }
@@ -1,13 +1,22 @@
 package com.maybeitssquid.retry.resilience4j;
 
 import com.maybeitssquid.retry.LimitRetryAfter;
+import com.maybeitssquid.retry.RateLimitPacer;
+import com.maybeitssquid.retry.RetryAfterMemo;
+import com.maybeitssquid.retry.RetryAfterParser;
+import com.maybeitssquid.retry.RetryMethodCodes;
+import com.maybeitssquid.retry.RetryPolicy;
 import com.maybeitssquid.retry.RetryStatusCodes;
 import io.github.resilience4j.core.IntervalBiFunction;
 import io.github.resilience4j.retry.RetryConfig;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.time.Duration;
+import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
 
 /**
  * Factories for common configurations.
@@ -60,7 +69,8 @@ public interface Retry {
      * @return consumer that uses HTTP status code and Retry-After for retry decisions and waits.
      */
     public static Consumer<RetryConfig.Builder<HttpServletResponse>> idempotent(final Duration limit, final int... retry) {
-        return limitAndCodes(limit, RetryStatusCodes.idempotent(retry));
+        final RetryStatusCodes codes = RetryStatusCodes.idempotent(retry);
+        return limitAndCodes(limit, codes, codes::retries);
     }
 
     /**
@@ -74,7 +84,8 @@ public interface Retry {
      * @return consumer that uses HTTP status code and Retry-After for retry decisions and waits.
      */
     public static Consumer<RetryConfig.Builder<HttpServletResponse>> nonIdempotent(final Duration limit, final int... retry) {
-        return limitAndCodes(limit, RetryStatusCodes.nonIdempotent(retry));
+        final RetryStatusCodes codes = RetryStatusCodes.nonIdempotent(retry);
+        return limitAndCodes(limit, codes, codes::retries);
     }
 
     /**
@@ -87,7 +98,54 @@ public interface Retry {
      * @return consumer that uses HTTP status code and Retry-After for retry decisions and waits.
      */
     public static Consumer<RetryConfig.Builder<HttpServletResponse>> onlyCodes(final Duration limit, final int... retry) {
-        return limitAndCodes(limit, RetryStatusCodes.only(retry));
+        final RetryStatusCodes codes = RetryStatusCodes.only(retry);
+        return limitAndCodes(limit, codes, codes::retries);
+    }
+
+    /**
+     * Adds a {@link java.util.function.Predicate} that decides whether to retry based on the HTTP method of the
+     * request and the status code in the response, so that one configuration can serve requests with any method.
+     *
+     * @param codes  decisions by method and status code, such as {@link RetryMethodCodes#standard()}
+     * @param method finds the method of the request that produced a response
+     * @return consumer that uses HTTP method and status code for retry decisions.
+     */
+    public static Consumer<RetryConfig.Builder<HttpServletResponse>> methods(
+            final RetryMethodCodes codes, final Function<? super HttpServletResponse, RetryMethodCodes.Method> method) {
+        return builder -> builder.retryOnResult(codes.predicate(method));
+    }
+
+    /**
+     * Adds a {@link java.util.function.Predicate} that decides whether to retry based on the HTTP method of the
+     * request, the status code in the response and whether any {@code Retry-After} header allows for a retry within an
+     * acceptable interval, and adds an {@link IntervalBiFunction} to extend the wait interval as needed.
+     *
+     * @param limit  the maximum wait interval that will be allowed by a {@code Retry-After}.
+     * @param codes  decisions by method and status code, such as {@link RetryMethodCodes#standard()}
+     * @param method finds the method of the request that produced a response
+     * @return consumer that uses HTTP method, status code and Retry-After for retry decisions and waits.
+     */
+    public static Consumer<RetryConfig.Builder<HttpServletResponse>> methods(
+            final Duration limit, final RetryMethodCodes codes,
+            final Function<? super HttpServletResponse, RetryMethodCodes.Method> method) {
+        return limitAndCodes(limit, codes.predicate(method), RetryStatusCodes.retryAfterStatuses()::retries);
+    }
+
+    /**
+     * Adds a {@link java.util.function.Predicate} that follows a policy that can be updated at runtime, and adds an
+     * {@link IntervalBiFunction} to extend the wait interval as needed while the policy has a maximum wait. Updates to
+     * the policy take effect for every retry configured with it, and each wait follows the same version of the policy
+     * as the decision to retry. This is the only factory whose decisions can be updated; the others build fixed
+     * predicates.
+     *
+     * @param policy the policy for retry decisions
+     * @return consumer that uses the current policy for retry decisions and waits.
+     */
+    public static Consumer<RetryConfig.Builder<HttpServletResponse>> policy(final RetryPolicy policy) {
+        return builder -> {
+            builder.retryOnResult(policy);
+            heedRetryAfter(builder, policy::waitFor, status -> true);
+        };
     }
 
     /**
@@ -115,24 +173,45 @@ public interface Retry {
      */
     public static Consumer<RetryConfig.Builder<HttpServletResponse>> retryAfter(final Duration limit) {
         return builder -> {
-            builder.retryOnResult(LimitRetryAfter.maximum(limit));
-            heedRetryAfter(builder);
+            final RetryAfterMemo memo = RetryAfterMemo.of(RetryAfterParser.extended());
+            final RetryStatusCodes statuses = RetryStatusCodes.retryAfterStatuses();
+            builder.retryOnResult(new LimitRetryAfter(limit, memo, statuses::retries));
+            heedRetryAfter(builder, memo, statuses::retries);
         };
     }
 
+    /**
+     * Adds an {@link IntervalBiFunction} that spaces retries so they do not spend the quota reported in rate limit
+     * headers faster than it resets. The pacer can also {@linkplain RateLimitPacer#decorate decorate} the first
+     * call, so that it is paced by the quota observed in earlier responses.
+     *
+     * @param pacer the pacer that observes the quota, which may be shared with other clients of the service.
+     * @return consumer that uses rate limit headers for retry waits.
+     */
+    public static Consumer<RetryConfig.Builder<HttpServletResponse>> rateLimit(final RateLimitPacer pacer) {
+        return builder -> {
+            // Builder lacks accessors, so have to instantiate
+            final IntervalBiFunction<HttpServletResponse> original = builder.build().getIntervalBiFunction();
+            builder.intervalBiFunction(HeedRateLimit.heed(original, pacer));
+        };
+    }
 
     /**
      * Common code for several variations.
      *
-     * @param limit the maximum wait interval that will be allowed by a {@code Retry-After}.
-     * @param codes the HTTP status codes to retry
+     * @param limit    the maximum wait interval that will be allowed by a {@code Retry-After}.
+     * @param codes    decides which responses to retry
+     * @param statuses the status codes whose {@code Retry-After} header is read
      * @return consumer that adds HTTP status code and Retry-After support.
      */
-    private static Consumer<RetryConfig.Builder<HttpServletResponse>> limitAndCodes(final Duration limit, final RetryStatusCodes codes) {
+    private static Consumer<RetryConfig.Builder<HttpServletResponse>> limitAndCodes(
+            final Duration limit, final Predicate<HttpServletResponse> codes, final IntPredicate statuses) {
         return builder -> {
-            final LimitRetryAfter maximum = LimitRetryAfter.maximum(limit);
+            // The header only matters for responses that are retried, so read it for no others
+            final RetryAfterMemo memo = RetryAfterMemo.of(RetryAfterParser.extended());
+            final LimitRetryAfter maximum = new LimitRetryAfter(limit, memo, statuses);
             builder.retryOnResult(codes.and(maximum));
-            heedRetryAfter(builder);
+            heedRetryAfter(builder, memo, statuses);
         };
     }
 
@@ -142,9 +221,22 @@ public interface Retry {
      * @param builder the builder to decorate.
      */
     private static void heedRetryAfter(final RetryConfig.Builder<HttpServletResponse> builder) {
+        heedRetryAfter(builder, RetryAfterParser.extended(), RetryStatusCodes.retryAfterStatuses()::retries);
+    }
+
+    /**
+     * Ugly way to decorate the existing {@link IntervalBiFunction}, sharing parsed headers with a predicate.
+     *
+     * @param builder the builder to decorate.
+     * @param parser   the parser for headers, such as a {@link RetryAfterMemo} shared with a predicate.
+     * @param statuses the status codes whose header is read.
+     */
+    private static void heedRetryAfter(final RetryConfig.Builder<HttpServletResponse> builder,
+                                       final Function<HttpServletResponse, Optional<Duration>> parser,
+                                       final IntPredicate statuses) {
         // Builder lacks accessors, so have to instantiate
         final IntervalBiFunction<HttpServletResponse> original = builder.build().getIntervalBiFunction();
-        builder.intervalBiFunction(HeedRetryAfter.heed(original));
+        builder.intervalBiFunction(new HeedRetryAfter(original, parser, statuses));
     }
 
 }
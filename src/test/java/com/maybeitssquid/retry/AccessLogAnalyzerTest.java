@@ -0,0 +1,134 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccessLogAnalyzerTest {
+
+    private static final String LOG = String.join("\n",
+            "GET\t200\t-\tThu, 02 Jan 2003 01:23:40 GMT",
+            "GET\t503\t120\tThu, 02 Jan 2003 01:23:40 GMT",
+            "GET\t429\t1.5\tThu, 02 Jan 2003 01:23:40 GMT",
+            "GET\t503\tThu, 02 Jan 2003 01:23:45 GMT\tThu, 02 Jan 2003 01:23:40 GMT",
+            "GET\t503\tThursday, 02-Jan-03 01:23:45 GMT\t-",
+            "GET\t429\t2003-01-02T01:24:00Z\tThu, 02 Jan 2003 01:23:40 GMT\r",
+            "GET\t501\tsoon\tThu, 02 Jan 2003 01:23:40 GMT",
+            "GET\tOK\t120",
+            "GET\t200",
+            "") + "\n";
+
+    private static AccessLogReport analyze(final String log, final AccessLogAnalyzer analyzer) throws IOException {
+        final Path file = Files.createTempFile("access", ".log");
+        try {
+            Files.write(file, log.getBytes(StandardCharsets.ISO_8859_1));
+            return analyzer.analyze(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertReport(final AccessLogReport report) {
+        assertEquals(10L, report.lines());
+        assertEquals(3L, report.malformed());
+        assertEquals(5L, report.retryable());
+        assertEquals(2L, report.notRetryable());
+        assertEquals(1L, report.absent());
+        assertEquals(1L, report.unrecognized());
+        assertEquals(1L, report.undated());
+        assertEquals(1L, report.formats().get("seconds"));
+        assertEquals(1L, report.formats().get("decimal"));
+        assertEquals(1L, report.formats().get("imf-fixdate"));
+        assertEquals(1L, report.formats().get("rfc-850"));
+        assertEquals(0L, report.formats().get("asctime"));
+        assertEquals(1L, report.formats().get("iso"));
+
+        final long[] waits = report.waits();
+        assertEquals(1L, waits[AccessLogReport.bucket(120_000L)]);
+        assertEquals(1L, waits[AccessLogReport.bucket(1500L)]);
+        assertEquals(1L, waits[AccessLogReport.bucket(5000L)]);
+        assertEquals(1L, waits[AccessLogReport.bucket(20_000L)]);
+        long total = 0L;
+        for (final long count : waits) total += count;
+        assertEquals(4L, total);
+    }
+
+    @Test
+    void testAnalyze() throws IOException {
+        assertReport(analyze(LOG, AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), 1, 2).withDateField(3)));
+    }
+
+    @Test
+    void testSmallChunks() throws IOException {
+        // Every split point falls somewhere different within a line
+        for (int chunk = 1; chunk < 40; chunk++) {
+            final AccessLogAnalyzer analyzer = new AccessLogAnalyzer(RetryStatusCodes.idempotent(), 1, 2, 3,
+                    (byte) '\t', chunk);
+            assertReport(analyze(LOG, analyzer));
+        }
+    }
+
+    @Test
+    void testLongLine() throws IOException {
+        final String log = "GET\t503\t120\n" + "GET\t503\t" + "9".repeat(AccessLogAnalyzer.MAX_LINE + 10) + "\n"
+                + "GET\t429\t3\n";
+        for (final int chunk : new int[]{8, 16, 20}) {
+            final AccessLogAnalyzer analyzer = new AccessLogAnalyzer(RetryStatusCodes.idempotent(), 1, 2, -1,
+                    (byte) '\t', chunk);
+            // The long line crosses the end of its chunk, so it is not parsed from a truncated prefix
+            final AccessLogReport report = analyze(log, analyzer);
+            assertEquals(3L, report.lines());
+            assertEquals(1L, report.malformed());
+            assertEquals(2L, report.formats().get("seconds"));
+        }
+    }
+
+    @Test
+    void testShortLine() throws IOException {
+        final AccessLogReport report = analyze("GET\t503\nGET\t503\t\nGET\t503\t-\n",
+                AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), 1, 2));
+        assertEquals(3L, report.lines());
+        // The first line has no Retry-After field at all, while the others have an empty one
+        assertEquals(1L, report.malformed());
+        assertEquals(2L, report.absent());
+        assertEquals(2L, report.retryable());
+    }
+
+    @Test
+    void testDelimiter() throws IOException {
+        final AccessLogReport report = analyze("429|3\n200|-\n",
+                AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), 0, 1).withDelimiter('|'));
+        assertEquals(2L, report.lines());
+        assertEquals(1L, report.formats().get("seconds"));
+        assertEquals(1L, report.absent());
+        assertEquals(1L, report.waits()[AccessLogReport.bucket(3000L)]);
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        assertEquals(0L, analyze("", AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), 0, 1)).lines());
+    }
+
+    @Test
+    void testBadFields() {
+        final AccessLogAnalyzer analyzer = AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), 0, 1);
+        assertThrows(IllegalArgumentException.class, () -> AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> AccessLogAnalyzer.of(RetryStatusCodes.idempotent(), -1, 1));
+        assertThrows(IllegalArgumentException.class, () -> analyzer.withDateField(1));
+        assertThrows(IllegalArgumentException.class, () -> analyzer.withDelimiter('\n'));
+    }
+
+    @Test
+    void testBucket() {
+        assertEquals(0, AccessLogReport.bucket(0L));
+        assertEquals(1, AccessLogReport.bucket(1L));
+        assertEquals(2, AccessLogReport.bucket(3L));
+        assertEquals(11, AccessLogReport.bucket(1024L));
+        assertEquals(63, AccessLogReport.bucket(Long.MAX_VALUE));
+    }
+}
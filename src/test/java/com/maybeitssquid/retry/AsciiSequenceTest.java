@@ -0,0 +1,43 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsciiSequenceTest {
+    private static final byte[] BYTES = "xxThu, 02 Jan 2003 01:23:45 GMTxx".getBytes(StandardCharsets.ISO_8859_1);
+
+    @Test
+    void testArray() {
+        final CharSequence view = AsciiSequence.of(BYTES, 2, 29);
+        assertEquals(29, view.length());
+        assertEquals('T', view.charAt(0));
+        assertEquals('T', view.charAt(28));
+        assertEquals("Thu, 02 Jan 2003 01:23:45 GMT", view.toString());
+        assertEquals("02 Jan", view.subSequence(5, 11).toString());
+        assertThrows(IndexOutOfBoundsException.class, () -> view.charAt(29));
+        assertThrows(IndexOutOfBoundsException.class, () -> AsciiSequence.of(BYTES, 30, 4));
+    }
+
+    @Test
+    void testBuffer() {
+        final ByteBuffer direct = ByteBuffer.allocateDirect(BYTES.length).put(BYTES);
+        direct.position(2).limit(31);
+        final CharSequence view = AsciiSequence.of(direct);
+        assertEquals("Thu, 02 Jan 2003 01:23:45 GMT", view.toString());
+        assertEquals("GMT", view.subSequence(26, 29).toString());
+        assertEquals(2, direct.position());
+
+        final ByteBuffer heap = ByteBuffer.wrap(BYTES, 2, 29).slice();
+        assertEquals("Thu, 02 Jan 2003 01:23:45 GMT", AsciiSequence.of(heap).toString());
+    }
+
+    @Test
+    void testHighBytes() {
+        final CharSequence view = AsciiSequence.of(new byte[]{(byte) 0xE9}, 0, 1);
+        assertEquals('é', view.charAt(0));
+    }
+}
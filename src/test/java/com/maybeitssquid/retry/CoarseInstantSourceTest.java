@@ -0,0 +1,82 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoarseInstantSourceTest {
+
+    @Test
+    void testCachesBetweenUpdates() {
+        final long[] now = {1000L};
+        final CoarseInstantSource clock = new CoarseInstantSource(() -> now[0]);
+        now[0] = 2000L;
+        assertEquals(1000L, clock.millis());
+        assertEquals(Instant.ofEpochMilli(1000L), clock.instant());
+        clock.update();
+        assertEquals(2000L, clock.millis());
+    }
+
+    @Test
+    void testWallAdvances() throws InterruptedException {
+        try (CoarseInstantSource clock = CoarseInstantSource.wall(Duration.ofMillis(1))) {
+            final long start = clock.millis();
+            Thread.sleep(50L);
+            assertTrue(clock.millis() > start);
+        }
+    }
+
+    @Test
+    void testMonotonicAdvances() throws InterruptedException {
+        try (CoarseInstantSource clock = CoarseInstantSource.monotonic(Duration.ofMillis(1))) {
+            final long start = clock.millis();
+            assertTrue(Math.abs(start - System.currentTimeMillis()) < 1000L);
+            Thread.sleep(50L);
+            assertTrue(clock.millis() > start);
+        }
+    }
+
+    @Test
+    void testClose() throws InterruptedException {
+        final CoarseInstantSource clock = CoarseInstantSource.wall(Duration.ofMillis(1));
+        clock.close();
+        Thread.sleep(5L);
+        final long closed = clock.millis();
+        Thread.sleep(20L);
+        assertEquals(closed, clock.millis());
+    }
+
+    @Test
+    void testSystem() throws InterruptedException {
+        assertSame(CoarseInstantSource.system(), CoarseInstantSource.system());
+
+        // Closing the shared clock does nothing, so it keeps advancing
+        try (CoarseInstantSource clock = CoarseInstantSource.system()) {
+            assertSame(CoarseInstantSource.system(), clock);
+        }
+        final long closed = CoarseInstantSource.system().millis();
+        Thread.sleep(250L);
+        assertTrue(CoarseInstantSource.system().millis() > closed);
+    }
+
+    @Test
+    void testBadTick() {
+        assertThrows(IllegalArgumentException.class, () -> CoarseInstantSource.wall(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> CoarseInstantSource.monotonic(Duration.ofMillis(-1)));
+    }
+
+    @Test
+    void testParser() {
+        final long[] now = {1041470620000L};
+        final CoarseInstantSource clock = new CoarseInstantSource(() -> now[0]);
+        final RetryAfterParser parser = RetryAfterParser.extended(clock);
+        assertEquals(5000L, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+        now[0] += 1000L;
+        assertEquals(5000L, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+        clock.update();
+        assertEquals(4000L, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+    }
+}
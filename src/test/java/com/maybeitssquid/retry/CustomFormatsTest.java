@@ -0,0 +1,69 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.maybeitssquid.retry.RetryAfterScanner.NONE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CustomFormatsTest {
+
+    /**
+     * Format that accepts headers starting with one character, and records the headers it is offered.
+     */
+    private static final class Lead implements RetryAfterFormat {
+        private final char lead;
+        private final long millis;
+        private final List<String> offered = new ArrayList<>();
+
+        private Lead(final char lead, final long millis) {
+            this.lead = lead;
+            this.millis = millis;
+        }
+
+        @Override
+        public boolean canStartWith(final char c) {
+            return c == this.lead;
+        }
+
+        @Override
+        public long millis(final CharSequence header, final int start, final int end, final InstantSource clock) {
+            this.offered.add(header.subSequence(start, end).toString());
+            return end - start == 1 ? this.millis : NONE;
+        }
+    }
+
+    @Test
+    void testRoutesByFirstCharacter() {
+        final Lead a = new Lead('a', 1L);
+        final Lead b = new Lead('b', 2L);
+        final CustomFormats formats = new CustomFormats(List.of(a, b));
+        assertEquals(1L, formats.millis("a", 0, 1, null));
+        assertEquals(2L, formats.millis(" b ", 1, 2, null));
+        assertEquals(NONE, formats.millis("c", 0, 1, null));
+        assertEquals(NONE, formats.millis("ab", 0, 2, null));
+        assertEquals(List.of("a", "ab"), a.offered);
+        assertEquals(List.of("b"), b.offered);
+    }
+
+    @Test
+    void testOrder() {
+        final Lead first = new Lead('x', 1L);
+        final Lead second = new Lead('x', 2L);
+        assertEquals(1L, new CustomFormats(List.of(first, second)).millis("x", 0, 1, null));
+        assertEquals(0, second.offered.size());
+        assertEquals(2L, new CustomFormats(List.of(second, first)).millis("x", 0, 1, null));
+    }
+
+    @Test
+    void testNonAscii() {
+        final Lead e = new Lead('é', 3L);
+        final CustomFormats formats = new CustomFormats(List.of(new Lead('a', 1L), e));
+        assertEquals(3L, formats.millis("é", 0, 1, null));
+        assertEquals(NONE, formats.millis("è", 0, 1, null));
+        assertEquals(List.of("é"), e.offered);
+    }
+}
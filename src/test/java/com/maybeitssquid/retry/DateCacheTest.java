@@ -0,0 +1,75 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.maybeitssquid.retry.RetryAfterScanner.NONE;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateCacheTest {
+    private static final String DATE = "Thu, 02 Jan 2003 01:23:45 GMT";
+
+    @ParameterizedTest
+    @CsvSource({
+            "1, 1",
+            "2, 2",
+            "3, 4",
+            "1000, 1024",
+            "1024, 1024"
+    })
+    void testCapacity(final int requested, final int capacity) {
+        assertEquals(capacity, new DateCache(requested).capacity());
+    }
+
+    @Test
+    void testBadCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new DateCache(0));
+        assertThrows(IllegalArgumentException.class, () -> new DateCache((1 << 30) + 1));
+    }
+
+    @Test
+    void testGetPut() {
+        final DateCache cache = new DateCache(16);
+        assertEquals(NONE, cache.get(DATE, 0, DATE.length()));
+
+        cache.put(DATE, 0, DATE.length(), 1041470625000L);
+        assertEquals(1041470625000L, cache.get(DATE, 0, DATE.length()));
+        assertEquals(1041470625000L, cache.get(" " + DATE + " ", 1, DATE.length() + 1));
+        assertEquals(NONE, cache.get("Thu, 02 Jan 2003 01:23:46 GMT", 0, DATE.length()));
+    }
+
+    @Test
+    void testCopiesKey() {
+        final DateCache cache = new DateCache(16);
+        final byte[] bytes = DATE.getBytes(StandardCharsets.US_ASCII);
+        cache.put(AsciiSequence.of(bytes, 0, bytes.length), 0, bytes.length, 1041470625000L);
+        bytes[bytes.length - 4] = '6';
+        assertEquals(NONE, cache.get(AsciiSequence.of(bytes, 0, bytes.length), 0, bytes.length));
+        assertEquals(1041470625000L, cache.get(DATE, 0, DATE.length()));
+    }
+
+    @Test
+    void testReplacement() {
+        final DateCache cache = new DateCache(1);
+        final String other = "2003-01-02T01:23:45Z";
+        cache.put(DATE, 0, DATE.length(), 1L);
+        cache.put(other, 0, other.length(), 2L);
+        assertEquals(NONE, cache.get(DATE, 0, DATE.length()));
+        assertEquals(2L, cache.get(other, 0, other.length()));
+    }
+
+    @Test
+    void testLengthLimits() {
+        final DateCache cache = new DateCache(16);
+        final String shortHeader = "12345";
+        cache.put(shortHeader, 0, shortHeader.length(), 1L);
+        assertEquals(NONE, cache.get(shortHeader, 0, shortHeader.length()));
+
+        final String longHeader = "x".repeat(DateCache.MAX_LENGTH + 1);
+        cache.put(longHeader, 0, longHeader.length(), 1L);
+        assertEquals(NONE, cache.get(longHeader, 0, longHeader.length()));
+    }
+}
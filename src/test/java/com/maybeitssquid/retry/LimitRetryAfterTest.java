@@ -7,6 +7,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -24,6 +25,7 @@ public class LimitRetryAfterTest {
     @Test
     void testPredicate() {
         final LimitRetryAfter limiter = LimitRetryAfter.maximum(TWO_SECONDS);
+        when(response.getStatus()).thenReturn(503);
 
         when(response.getHeader("Retry-After")).thenReturn(null);
         assertTrue(limiter.test(response));
@@ -41,6 +43,79 @@ public class LimitRetryAfterTest {
         assertFalse(limiter.test(response));
     }
 
+    @Test
+    void testCustomParser() {
+        final LimitRetryAfter limiter = new LimitRetryAfter(Duration.ofMillis(1500L),
+                r -> Optional.of(Duration.ofMillis(r.getStatus())), status -> true);
+
+        when(response.getStatus()).thenReturn(1500);
+        assertTrue(limiter.test(response));
+
+        when(response.getStatus()).thenReturn(1501);
+        assertFalse(limiter.test(response));
+    }
+
+    @Test
+    void testSubMillisecondParser() {
+        final Duration[] wait = {Duration.ofNanos(1_000_500_000L)};
+        final LimitRetryAfter limiter = new LimitRetryAfter(Duration.ofSeconds(1L), r -> Optional.of(wait[0]),
+                status -> true);
+
+        // Half a millisecond over the maximum is still over it
+        assertFalse(limiter.test(response));
+        wait[0] = Duration.ofNanos(1_000_000_001L);
+        assertFalse(limiter.test(response));
+        wait[0] = Duration.ofSeconds(1L);
+        assertTrue(limiter.test(response));
+        wait[0] = Duration.ofNanos(999_999_999L);
+        assertTrue(limiter.test(response));
+    }
+
+    @Test
+    void testMemo() {
+        final int[] parses = {0};
+        final RetryAfterMemo memo = RetryAfterMemo.of(r -> Optional.of(Duration.ofMillis(1000L * ++parses[0])));
+        final LimitRetryAfter limiter = new LimitRetryAfter(TWO_SECONDS, memo);
+        when(response.getStatus()).thenReturn(503);
+
+        assertTrue(limiter.test(response));
+        assertEquals(1000L, memo.take(response));
+        assertEquals(1, parses[0]);
+
+        // A refused retry is forgotten, so the wait is parsed again
+        assertTrue(limiter.test(response));
+        assertFalse(limiter.test(response));
+        assertEquals(4000L, memo.take(response));
+    }
+
+    @Test
+    void testStatuses() {
+        final int[] parses = {0};
+        final LimitRetryAfter limiter = new LimitRetryAfter(TWO_SECONDS, r -> {
+            parses[0]++;
+            return Optional.of(Duration.ofSeconds(3L));
+        });
+
+        // The header is not read for statuses that do not carry it
+        when(response.getStatus()).thenReturn(200);
+        assertTrue(limiter.test(response));
+        when(response.getStatus()).thenReturn(500);
+        assertTrue(limiter.test(response));
+        assertEquals(0, parses[0]);
+
+        when(response.getStatus()).thenReturn(429);
+        assertFalse(limiter.test(response));
+        when(response.getStatus()).thenReturn(301);
+        assertFalse(limiter.test(response));
+        assertEquals(2, parses[0]);
+
+        final LimitRetryAfter custom = new LimitRetryAfter(TWO_SECONDS, r -> Optional.of(Duration.ofSeconds(3L)),
+                status -> status == 500);
+        assertTrue(custom.test(response));
+        when(response.getStatus()).thenReturn(500);
+        assertFalse(custom.test(response));
+    }
+
     @Test
     void testMaximumMilliseconds() {
         final LimitRetryAfter limiter = LimitRetryAfter.maximum(2000L);
@@ -0,0 +1,126 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Optional;
+
+import static com.maybeitssquid.retry.RateLimit.UNKNOWN;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RateLimitPacerTest {
+
+    private final Instant[] now = {Instant.parse("2003-01-02T01:23:45Z")};
+
+    private final InstantSource clock = () -> now[0];
+
+    private final RateLimitPacer pacer = RateLimitPacer.of(RateLimitParser.standard(clock), 0.2, clock);
+
+    private final HttpServletResponse response;
+
+    public RateLimitPacerTest(@Mock final HttpServletResponse response) {
+        this.response = response;
+    }
+
+    @Test
+    void testUnobserved() {
+        assertEquals(0L, this.pacer.spacingMillis());
+        assertEquals(0L, this.pacer.acquire());
+    }
+
+    @Test
+    void testAcquireUnobserved() {
+        // Acquiring before any quota is observed does not delay the first requests
+        assertEquals(0L, this.pacer.acquire());
+        assertEquals(0L, this.pacer.acquire());
+    }
+
+    @Test
+    void testAcquireConcurrentObserve() {
+        final RateLimitPacer[] pacer = {null};
+        final boolean[] observing = {false};
+        // A quota is exhausted just as the time is read for a slot, after the earlier quota was read
+        final InstantSource observingClock = () -> {
+            if (observing[0]) {
+                observing[0] = false;
+                pacer[0].observe(new RateLimit(0L, 100L, 10000L));
+            }
+            return now[0];
+        };
+        pacer[0] = RateLimitPacer.of(RateLimitParser.standard(observingClock), 0.2, observingClock);
+        assertEquals(1000L, pacer[0].observe(new RateLimit(9L, 100L, 10000L)));
+
+        observing[0] = true;
+        assertEquals(0L, pacer[0].acquire());
+        // The slot was spaced by the quota that was read, not by the wait for the reset of the new one
+        assertEquals(10000L, pacer[0].acquire());
+        pacer[0].observe(new RateLimit(9L, 100L, 10000L));
+        assertEquals(1000L, pacer[0].acquire());
+    }
+
+    @Test
+    void testAboveThreshold() {
+        assertEquals(0L, this.pacer.observe(new RateLimit(20L, 100L, 10000L)));
+        assertEquals(0L, this.pacer.acquire());
+    }
+
+    @Test
+    void testBelowThreshold() {
+        assertEquals(1000L, this.pacer.observe(new RateLimit(9L, 100L, 10000L)));
+        assertEquals(0L, this.pacer.acquire());
+        assertEquals(1000L, this.pacer.acquire());
+        assertEquals(2000L, this.pacer.acquire());
+
+        this.now[0] = this.now[0].plusMillis(5000L);
+        assertEquals(500L, this.pacer.spacingMillis());
+        assertEquals(0L, this.pacer.acquire());
+        assertEquals(500L, this.pacer.acquire());
+    }
+
+    @Test
+    void testUnknownLimit() {
+        assertEquals(2000L, this.pacer.observe(new RateLimit(4L, UNKNOWN, 10000L)));
+        assertEquals(0L, this.pacer.observe(new RateLimit(4L, UNKNOWN, UNKNOWN)));
+    }
+
+    @Test
+    void testExhausted() {
+        assertEquals(10000L, this.pacer.observe(new RateLimit(0L, 100L, 10000L)));
+        assertEquals(10000L, this.pacer.acquire());
+        assertEquals(10000L, this.pacer.acquire());
+
+        this.now[0] = this.now[0].plusMillis(10000L);
+        assertEquals(0L, this.pacer.spacingMillis());
+        assertEquals(0L, this.pacer.acquire());
+    }
+
+    @Test
+    void testObserveResponse() {
+        assertEquals(0L, this.pacer.observe((HttpServletResponse) null));
+
+        when(this.response.getHeader("RateLimit")).thenReturn("\"default\";r=0;t=3");
+        when(this.response.getHeader("RateLimit-Policy")).thenReturn(null);
+        assertEquals(3000L, this.pacer.observe(this.response));
+    }
+
+    @Test
+    void testDecorate() {
+        final RateLimitPacer tracking = RateLimitPacer.of(r -> Optional.of(new RateLimit(50L, 100L, 1000L)));
+        assertSame(this.response, tracking.decorate(() -> this.response).get());
+        assertEquals(0L, tracking.spacingMillis());
+    }
+
+    @Test
+    void testThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPacer.of(RateLimitParser.standard(), -0.1));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPacer.of(RateLimitParser.standard(), 1.1));
+        assertThrows(IllegalArgumentException.class, () -> RateLimitPacer.of(RateLimitParser.standard(), Double.NaN));
+    }
+}
@@ -0,0 +1,111 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.maybeitssquid.retry.RateLimit.UNKNOWN;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RateLimitParserTest {
+    private static final InstantSource CLOCK = InstantSource.fixed(Instant.parse("2003-01-02T01:23:45Z"));
+
+    private final RateLimitParser parser = RateLimitParser.standard(CLOCK);
+
+    private final HttpServletResponse response;
+
+    public RateLimitParserTest(@Mock final HttpServletResponse response) {
+        this.response = response;
+    }
+
+    private Optional<RateLimit> parse(final Map<String, String> headers) {
+        return this.parser.parse(headers::get);
+    }
+
+    @Test
+    void testStructured() {
+        assertEquals(Optional.of(new RateLimit(50L, UNKNOWN, 30000L)),
+                parse(Map.of("RateLimit", "\"default\";r=50;t=30")));
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)),
+                parse(Map.of("RateLimit", "\"default\";r=50;t=30", "RateLimit-Policy", "\"default\";q=100;w=60")));
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)),
+                parse(Map.of("RateLimit", "default; r=50; t=30", "RateLimit-Policy", "default;q=100;w=60")));
+        assertEquals(Optional.of(new RateLimit(0L, UNKNOWN, UNKNOWN)),
+                parse(Map.of("RateLimit", "\"default\";r=0")));
+    }
+
+    @Test
+    void testMostRestrictivePolicy() {
+        final Map<String, String> headers = Map.of(
+                "RateLimit", "\"hour\";r=500;t=3000, \"second\";r=2;t=1, \"day\";r=2;t=80000",
+                "RateLimit-Policy", "\"day\";q=10000;w=86400, \"hour\";q=1000;w=3600, \"second\";q=10;w=1");
+        assertEquals(Optional.of(new RateLimit(2L, 10000L, 80000000L)), parse(headers));
+    }
+
+    @Test
+    void testEarlierForm() {
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)),
+                parse(Map.of("RateLimit", "limit=100, remaining=50, reset=30")));
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)),
+                parse(Map.of("RateLimit", "remaining=50, reset=30", "RateLimit-Policy", "100;w=60")));
+    }
+
+    @Test
+    void testSeparate() {
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)), parse(Map.of("RateLimit-Remaining", "50",
+                "RateLimit-Limit", "100, 100;w=60", "RateLimit-Reset", "30")));
+        assertEquals(Optional.of(new RateLimit(50L, UNKNOWN, UNKNOWN)), parse(Map.of("RateLimit-Remaining", " 50")));
+    }
+
+    @Test
+    void testLegacy() {
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)), parse(Map.of("X-RateLimit-Remaining", "50",
+                "X-RateLimit-Limit", "100", "X-RateLimit-Reset", "30")));
+        // A reset after EPOCH_SECONDS is a time
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)), parse(Map.of("X-RateLimit-Remaining", "50",
+                "X-RateLimit-Limit", "100", "X-RateLimit-Reset", "1041470655")));
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 0L)), parse(Map.of("X-RateLimit-Remaining", "50",
+                "X-RateLimit-Limit", "100", "X-RateLimit-Reset", "1041470600")));
+    }
+
+    @Test
+    void testPrecedence() {
+        assertEquals(Optional.of(new RateLimit(1L, UNKNOWN, UNKNOWN)), parse(Map.of("RateLimit", "\"a\";r=1",
+                "RateLimit-Remaining", "2", "X-RateLimit-Remaining", "3")));
+        assertEquals(Optional.of(new RateLimit(2L, UNKNOWN, UNKNOWN)), parse(Map.of("RateLimit", "\"a\";t=1",
+                "RateLimit-Remaining", "2", "X-RateLimit-Remaining", "3")));
+        assertEquals(Optional.of(new RateLimit(3L, UNKNOWN, UNKNOWN)), parse(Map.of("RateLimit-Remaining", "lots",
+                "X-RateLimit-Remaining", "3")));
+    }
+
+    @Test
+    void testInvalid() {
+        assertEquals(Optional.empty(), parse(Map.of()));
+        assertEquals(Optional.empty(), parse(Map.of("RateLimit", "")));
+        assertEquals(Optional.empty(), parse(Map.of("RateLimit", "\"unterminated;r=5")));
+        assertEquals(Optional.empty(), parse(Map.of("RateLimit", "\"a\";r=-5;t=30")));
+        assertEquals(Optional.empty(), parse(Map.of("X-RateLimit-Remaining", "-1")));
+        assertEquals(Optional.of(new RateLimit(5L, UNKNOWN, UNKNOWN)),
+                parse(Map.of("RateLimit", "\"a\";r=5;t=soon;q")));
+        assertEquals(Optional.of(new RateLimit(Long.MAX_VALUE, UNKNOWN, Long.MAX_VALUE)),
+                parse(Map.of("RateLimit", "\"a\";r=99999999999999999999;t=99999999999999999")));
+    }
+
+    @Test
+    void testResponse() {
+        assertEquals(Optional.empty(), this.parser.apply(null));
+
+        when(this.response.getHeader("RateLimit")).thenReturn("\"default\";r=50;t=30");
+        when(this.response.getHeader("RateLimit-Policy")).thenReturn("\"default\";q=100;w=60");
+        assertEquals(Optional.of(new RateLimit(50L, 100L, 30000L)), this.parser.apply(this.response));
+    }
+}
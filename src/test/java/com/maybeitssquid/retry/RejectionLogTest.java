@@ -0,0 +1,67 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RejectionLogTest {
+    private static final String MESSAGE = "Received unrecognized Retry-After header \"{}\"";
+
+    private final Instant[] now = {Instant.parse("2003-01-02T01:23:45Z")};
+
+    private final InstantSource clock = () -> now[0];
+
+    @Test
+    void testSuppressesRepeats() {
+        final RejectionLog log = new RejectionLog(Duration.ofSeconds(10), clock);
+        log.reject(MESSAGE, "bad");
+        log.reject(MESSAGE, "bad");
+        log.reject(MESSAGE, new StringBuilder("bad"));
+        assertEquals(3L, log.rejected());
+        assertEquals(2L, log.suppressed());
+
+        log.reject(MESSAGE, "worse");
+        assertEquals(4L, log.rejected());
+        assertEquals(2L, log.suppressed());
+    }
+
+    @Test
+    void testLogsAgainAfterInterval() {
+        final RejectionLog log = new RejectionLog(Duration.ofSeconds(10), clock);
+        log.reject(MESSAGE, "bad");
+        now[0] = now[0].plusSeconds(9);
+        log.reject(MESSAGE, "bad");
+        assertEquals(1L, log.suppressed());
+        now[0] = now[0].plusSeconds(1);
+        log.reject(MESSAGE, "bad");
+        assertEquals(1L, log.suppressed());
+        log.reject(MESSAGE, "bad");
+        assertEquals(2L, log.suppressed());
+    }
+
+    @Test
+    void testZeroInterval() {
+        final RejectionLog log = new RejectionLog(Duration.ZERO, clock);
+        log.reject(MESSAGE, "bad");
+        log.reject(MESSAGE, "bad");
+        assertEquals(2L, log.rejected());
+        assertEquals(0L, log.suppressed());
+    }
+
+    @Test
+    void testHugeInterval() {
+        final RejectionLog log = new RejectionLog(Duration.ofSeconds(Long.MAX_VALUE), clock);
+        log.reject(MESSAGE, "bad");
+        log.reject(MESSAGE, "bad");
+        assertEquals(1L, log.suppressed());
+    }
+
+    @Test
+    void testNegativeInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new RejectionLog(Duration.ofSeconds(-1), clock));
+    }
+}
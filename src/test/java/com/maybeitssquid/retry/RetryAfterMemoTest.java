@@ -0,0 +1,79 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RetryAfterMemoTest {
+
+    private final HttpServletResponse response;
+
+    private final HttpServletResponse other;
+
+    private final int[] parses = {0};
+
+    private final RetryAfterMemo memo = RetryAfterMemo.of(r -> Optional.of(Duration.ofMillis(++parses[0])));
+
+    public RetryAfterMemoTest(@Mock final HttpServletResponse response, @Mock final HttpServletResponse other) {
+        this.response = response;
+        this.other = other;
+    }
+
+    @Test
+    void testTakeRemembered() {
+        assertEquals(1L, this.memo.remember(this.response));
+        assertEquals(1L, this.memo.take(this.response));
+        assertEquals(1, this.parses[0]);
+
+        // Taken only once
+        assertEquals(2L, this.memo.take(this.response));
+        assertEquals(2, this.parses[0]);
+    }
+
+    @Test
+    void testTakeOtherResponse() {
+        assertEquals(1L, this.memo.remember(this.response));
+        assertEquals(2L, this.memo.take(this.other));
+        assertEquals(1L, this.memo.take(this.response));
+    }
+
+    @Test
+    void testForget() {
+        assertEquals(1L, this.memo.remember(this.response));
+        this.memo.forget(this.other);
+        this.memo.forget(this.response);
+        assertEquals(2L, this.memo.take(this.response));
+    }
+
+    @Test
+    void testRememberWithoutParsing() {
+        assertEquals(OptionalLong.empty(), this.memo.takeRemembered(this.response));
+        this.memo.remember(this.response, RetryAfterParser.NONE);
+        assertEquals(OptionalLong.of(RetryAfterParser.NONE), this.memo.takeRemembered(this.response));
+        assertEquals(OptionalLong.empty(), this.memo.takeRemembered(this.response));
+        assertEquals(1L, this.memo.take(this.response));
+    }
+
+    @Test
+    void testApplyDoesNotRemember() {
+        assertEquals(Optional.of(Duration.ofMillis(1L)), this.memo.apply(this.response));
+        assertEquals(2L, this.memo.take(this.response));
+    }
+
+    @Test
+    void testNull() {
+        final RetryAfterMemo parsed = RetryAfterMemo.of(RetryAfterParser.extended());
+        assertEquals(RetryAfterParser.NONE, parsed.remember(null));
+        assertEquals(RetryAfterParser.NONE, parsed.take(null));
+        parsed.forget(null);
+    }
+}
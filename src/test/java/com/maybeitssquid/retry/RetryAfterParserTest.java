@@ -9,10 +9,13 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.InstantSource;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
 
 import static com.maybeitssquid.retry.RetryAfterParser.*;
@@ -300,6 +303,241 @@ public class RetryAfterParserTest {
         negativeTest(RetryAfterParser.extended(), header);
     }
 
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "0|0",
+            "'  2 '|2000",
+            "1.5|1500",
+            "Thu, 02 Jan 2003 01:23:45 GMT|1000",
+            "Thursday, 02-Jan-03 01:23:45 GMT|1000",
+            "Thu Jan  2 01:23:45 2003|1000",
+            "2003-01-02T01:23:45Z|1000"
+    })
+    void testParseMillis(final String header, final long milliseconds) {
+        final RetryAfterParser parser = RetryAfterParser.extended(InstantSource.fixed(TEST_INSTANT.minusSeconds(1)));
+        assertEquals(milliseconds, parser.parseMillis(header));
+    }
+
+    @ParameterizedTest
+    @ValueSource( strings= {
+            "",
+            "   ",
+            "-1",
+            "garbage",
+            "Fri, 02 Jan 2003 01:23:45 GMT"
+    })
+    void testParseMillisNegative(final String header) {
+        assertEquals(NONE, RetryAfterParser.extended().parseMillis(header));
+    }
+
+    @Test
+    void testMillis() {
+        final RetryAfterParser parser = RetryAfterParser.secondsOnly();
+        assertEquals(NONE, parser.millis(null));
+        assertEquals(NONE, parser.parseMillis((CharSequence) null));
+
+        when(response.getHeader("Retry-After")).thenReturn("3");
+        assertEquals(3000L, parser.millis(response));
+    }
+
+    @Test
+    void testPrimitiveFunctions() {
+        final long testMillis = TEST_INSTANT.toEpochMilli();
+        assertEquals(2000L, STRICT_SECONDS_MILLIS.applyAsLong("2"));
+        assertEquals(NONE, STRICT_SECONDS_MILLIS.applyAsLong("2.5"));
+        assertEquals(2500L, DECIMAL_SECONDS_MILLIS.applyAsLong("2.5"));
+        assertEquals(testMillis, IMF_FIXDATE_MILLIS.applyAsLong("Thu, 02 Jan 2003 01:23:45 GMT"));
+        assertEquals(testMillis, RFC_850_MILLIS.applyAsLong("Thursday, 02-Jan-03 01:23:45 GMT"));
+        assertEquals(testMillis, ASCTIME_MILLIS.applyAsLong("Thu Jan  2 01:23:45 2003"));
+        assertEquals(testMillis, ISO_MILLIS.applyAsLong("2003-01-02T01:23:45Z"));
+        assertEquals(NONE, ISO_MILLIS.applyAsLong("Thu, 02 Jan 2003 01:23:45 GMT"));
+        assertEquals(NONE, IMF_FIXDATE_MILLIS.applyAsLong(null));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "'  2 '|2000",
+            "1.5|1500",
+            "Thu, 02 Jan 2003 01:23:45 GMT|1000",
+            "2003-01-02T01:23:45Z|1000",
+            "garbage|" + Long.MIN_VALUE
+    })
+    void testParseBytes(final String header, final long milliseconds) {
+        final RetryAfterParser parser = RetryAfterParser.extended(InstantSource.fixed(TEST_INSTANT.minusSeconds(1)));
+        final byte[] bytes = ("X-Header: " + header + "\r\n").getBytes(StandardCharsets.US_ASCII);
+        assertEquals(milliseconds, parser.parseMillis(bytes, 10, header.length()));
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+        buffer.position(10).limit(10 + header.length());
+        assertEquals(milliseconds, parser.parseMillis(buffer));
+        assertEquals(10, buffer.position());
+    }
+
+    @Test
+    void testDateCache() {
+        final Instant now = TEST_INSTANT.minusSeconds(5);
+        final Instant[] clock = {now};
+        final RetryAfterParser parser = RetryAfterParser.extended(() -> clock[0]).withDateCache(8);
+
+        assertEquals(5000L, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+        clock[0] = now.plusSeconds(2);
+        assertEquals(3000L, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+        assertEquals(3000L, parser.parseMillis("Thursday, 02-Jan-03 01:23:45 GMT"));
+        assertEquals(3000L, parser.parseMillis("Thursday, 02-Jan-03 01:23:45 GMT"));
+        assertEquals(123456789012345000L, parser.parseMillis("123456789012345"));
+        assertEquals(NONE, parser.parseMillis("Fri, 02 Jan 2003 01:23:45 GMT"));
+    }
+
+    @Test
+    void testDateCacheKeepsFormats() {
+        final RetryAfterParser parser = RetryAfterParser.secondsOnly().withDateCache(8);
+        assertEquals(NONE, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+        assertEquals(NONE, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+    }
+
+    @Test
+    void testRejectionCounters() {
+        final RetryAfterParser parser = RetryAfterParser.strict().withWarningInterval(Duration.ofHours(1));
+        assertEquals(0L, parser.rejectedHeaders());
+        assertEquals(NONE, parser.parseMillis("soon"));
+        assertEquals(NONE, parser.parseMillis("soon"));
+        assertEquals(NONE, parser.parseMillis("  "));
+        assertEquals(3000L, parser.parseMillis("3"));
+        assertEquals(NONE, parser.parseMillis((CharSequence) null));
+        assertEquals(3L, parser.rejectedHeaders());
+        assertEquals(1L, parser.suppressedWarnings());
+        assertEquals(0L, parser.withDateCache(8).rejectedHeaders());
+        assertThrows(IllegalArgumentException.class, () -> parser.withWarningInterval(Duration.ofSeconds(-1)));
+    }
+
+    /**
+     * Vendor format of "@" followed by the epoch second to retry at.
+     */
+    private static final RetryAfterFormat EPOCH_SECONDS = new RetryAfterFormat() {
+        @Override
+        public boolean canStartWith(final char c) {
+            return c == '@';
+        }
+
+        @Override
+        public long millis(final CharSequence header, final int start, final int end, final InstantSource clock) {
+            if (end - start < 2) return NONE;
+            long seconds = 0L;
+            for (int i = start + 1; i < end; i++) {
+                final char c = header.charAt(i);
+                if (c < '0' || c > '9' || seconds > Long.MAX_VALUE / 10_000L) return NONE;
+                seconds = seconds * 10L + c - '0';
+            }
+            return Math.max(0L, seconds * 1000L - clock.millis());
+        }
+    };
+
+    @Test
+    void testBuilder() {
+        final RetryAfterParser parser = RetryAfterParser.builder()
+                .seconds()
+                .iso()
+                .format(EPOCH_SECONDS)
+                .clock(InstantSource.fixed(TEST_INSTANT.minusSeconds(5)))
+                .build();
+        assertEquals(3000L, parser.parseMillis("3"));
+        assertEquals(5000L, parser.parseMillis("2003-01-02T01:23:45Z"));
+        assertEquals(5000L, parser.parseMillis(" @" + TEST_INSTANT.getEpochSecond() + " "));
+        assertEquals(NONE, parser.parseMillis("1.5"));
+        assertEquals(NONE, parser.parseMillis("Thu, 02 Jan 2003 01:23:45 GMT"));
+        assertEquals(NONE, parser.parseMillis("@soon"));
+        assertEquals(3L, parser.rejectedHeaders());
+    }
+
+    @Test
+    void testBuilderCustomOnly() {
+        final int[] calls = {0};
+        final RetryAfterParser parser = RetryAfterParser.builder()
+                .format(EPOCH_SECONDS)
+                .format((header, start, end, clock) -> {
+                    calls[0]++;
+                    return header.charAt(start) == '\u00e9' ? 7L : NONE;
+                })
+                .clock(InstantSource.fixed(TEST_INSTANT))
+                .build();
+        assertEquals(0L, parser.parseMillis("@" + TEST_INSTANT.getEpochSecond()));
+        assertEquals(0, calls[0]);
+        assertEquals(NONE, parser.parseMillis("3"));
+        assertEquals(1, calls[0]);
+        assertEquals(7L, parser.parseMillis("\u00e9"));
+        assertEquals(Optional.empty(), parser.apply(null));
+    }
+
+    @Test
+    void testBuilderMatchesFactories() {
+        final RetryAfterParser built = RetryAfterParser.builder().extended().build();
+        for (final String header : new String[]{"3", "1.5", "2003-01-02T01:23:45Z", "Thu Jan  2 01:23:45 2003"}) {
+            assertEquals(RetryAfterParser.extended().parseMillis(header) / 1000L, built.parseMillis(header) / 1000L);
+        }
+        assertThrows(IllegalStateException.class, () -> RetryAfterParser.builder().build());
+        assertThrows(NullPointerException.class, () -> RetryAfterParser.builder().format(null));
+    }
+
+    @Test
+    void testDuplicates() {
+        final RetryAfterParser first = RetryAfterParser.secondsOnly();
+        final RetryAfterParser min = first.withDuplicates(Duplicates.MIN);
+        final RetryAfterParser max = first.withDuplicates(Duplicates.MAX);
+        final List<String> headers = List.of("5", "soon", "1", "3");
+        assertEquals(5000L, first.parseMillis(headers));
+        assertEquals(1000L, min.parseMillis(headers));
+        assertEquals(5000L, max.parseMillis(headers));
+        assertEquals(NONE, first.parseMillis(List.of("soon", "1")));
+        assertEquals(NONE, min.parseMillis(List.of("soon")));
+        assertEquals(NONE, max.parseMillis(List.of()));
+        assertEquals(NONE, max.parseMillis((Iterable<String>) null));
+
+        when(response.getHeaders("Retry-After")).thenReturn(headers);
+        assertEquals(1000L, min.millis(response));
+        assertEquals(Optional.of(Duration.ofSeconds(5L)), max.apply(response));
+        assertEquals(3L, min.rejectedHeaders());
+        assertEquals(2L, max.rejectedHeaders());
+    }
+
+    @Test
+    void testDuplicatesStopEarly() {
+        final int[] read = {0};
+        final Iterable<String> headers = () -> List.of("2", "0", "1").stream().peek(h -> read[0]++).iterator();
+        assertEquals(0L, RetryAfterParser.secondsOnly().withDuplicates(Duplicates.MIN).parseMillis(headers));
+        assertEquals(2, read[0]);
+
+        read[0] = 0;
+        assertEquals(2000L, RetryAfterParser.secondsOnly().parseMillis(headers));
+        assertEquals(1, read[0]);
+
+        final RetryAfterParser parser = RetryAfterParser.builder().extended().duplicates(Duplicates.MAX).build();
+        assertEquals(Long.MAX_VALUE, parser.parseMillis(List.of("9223372036854775807", "1")));
+        assertThrows(NullPointerException.class, () -> RetryAfterParser.builder().duplicates(null));
+    }
+
+    @Test
+    void testMaxHeaderLength() {
+        final RetryAfterParser parser = RetryAfterParser.extended();
+        final String longest = "0".repeat(MAX_HEADER_LENGTH - 1) + "3";
+        assertEquals(3000L, parser.parseMillis(longest));
+        assertEquals(NONE, parser.parseMillis("0" + longest));
+        assertEquals(NONE, parser.parseMillis(" ".repeat(MAX_HEADER_LENGTH) + "3"));
+        assertEquals(NONE, parser.parseMillis("Thu " + "x".repeat(1 << 20)));
+        assertEquals(3L, parser.rejectedHeaders());
+    }
+
+    @Test
+    void testToMillis() {
+        assertEquals(1234L, RetryAfterParser.toMillis(r -> Optional.of(Duration.ofMillis(1234L))).applyAsLong(response));
+        assertEquals(NONE, RetryAfterParser.toMillis(r -> Optional.empty()).applyAsLong(response));
+        assertEquals(Long.MAX_VALUE,
+                RetryAfterParser.toMillis(r -> Optional.of(Duration.ofSeconds(Long.MAX_VALUE))).applyAsLong(response));
+        // A fraction of a millisecond from a custom parser is rounded up, never truncated
+        assertEquals(1235L, RetryAfterParser.toMillis(r -> Optional.of(Duration.ofNanos(1_234_000_001L)))
+                .applyAsLong(response));
+        assertEquals(0L, RetryAfterParser.toMillis(r -> Optional.of(Duration.ofNanos(-1L))).applyAsLong(response));
+    }
+
     void negativeTest(final RetryAfterParser parser, final String header) {
         when (response.getHeader("Retry-After")).thenReturn(header);
         final Optional<Duration> result = parser.apply(response);
@@ -0,0 +1,207 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.time.InstantSource;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import static com.maybeitssquid.retry.RetryAfterScanner.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RetryAfterScannerTest {
+    private static final InstantSource CLOCK = InstantSource.fixed(Instant.parse("2003-01-02T01:23:44Z"));
+
+    private static int recognize(final String header, final int formats) {
+        return RetryAfterScanner.recognize(header, 0, header.length(), formats);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "0|1",
+            "123|1",
+            "1.|2",
+            "1.5|2",
+            "Thu, 02 Jan 2003 01:23:45 GMT|4",
+            "2 Jan 2003 1:23 GMT|4",
+            "Thursday, 02-Jan-03 01:23:45 GMT|8",
+            "2-Jan-03 1:23 EST|8",
+            "Thu, 02-Jan-03 01:23:45 GMT|8",
+            "Thu Jan  2 01:23:45 2003|16",
+            "Jan 2 01:23:45 2003|16",
+            "Thu 123 2 01:23:45 2003|16",
+            "2003-01-02T01:23:45Z|32",
+            "2003-01-02T01:23:45.123456Z|32"
+    })
+    void testRecognize(final String header, final int format) {
+        assertEquals(format, recognize(header, EXTENDED));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "-1",
+            ".5",
+            "1.5.",
+            "1e3",
+            "123, 02 Jan 2003 01:23:45 GMT",
+            "Thu,02 Jan 2003 01:23:45 GMT",
+            "Thu, 02 Jan 03 01:23:45 GMT",
+            "Thu, 02 Jan 2003 01:23:45 UTC",
+            "Thu, 02 Jan 2003 01:23:45 GMT ",
+            "Thu, 002 Jan 2003 01:23:45 GMT",
+            "Thursday, 02-Jan-2003 01:23:45 GMT",
+            "Thursday, 02-Jan-03 01:23:45",
+            "Thu Jan  2 01:23:45 03",
+            "Thu Jan  2  01:23:45 2003",
+            "2003-01-02T01:23:45.1Z",
+            "2003-01-02 01:23:45Z",
+            "_Thu Jan  2 01:23:45 2003",
+            "+1",
+            "\u00e91",
+            "\u0661"
+    })
+    void testUnrecognized(final String header) {
+        assertEquals(0, recognize(header, EXTENDED));
+    }
+
+    @Test
+    void testFormatsMask() {
+        assertEquals(SECONDS, recognize("1", STRICT));
+        assertEquals(DECIMAL, recognize("1", DECIMAL));
+        assertEquals(0, recognize("1.5", STRICT));
+        assertEquals(0, recognize("2003-01-02T01:23:45Z", STRICT));
+        assertEquals(0, recognize("Thu, 02 Jan 2003 01:23:45 GMT", RFC_850));
+        assertEquals(0, recognize("Thu, 02 Jan 2003 01:23:45 GMT", ANY_SECONDS | ISO));
+        assertEquals(0, recognize("2 Jan 2003 1:23 GMT", ASCTIME));
+        assertEquals(IMF_FIXDATE, recognize("2 Jan 2003 1:23 GMT", IMF_FIXDATE));
+    }
+
+    @Test
+    void testMillis() {
+        assertEquals(3000L, millis("3", 0, 1, SECONDS, CLOCK));
+        assertEquals(1500L, millis(" 1.5 ", 1, 4, ANY_SECONDS, CLOCK));
+        assertEquals(1000L, millis("Thu, 02 Jan 2003 01:23:45 GMT", 0, 29, STRICT, CLOCK));
+        assertEquals(0L, millis("Thu, 02 Jan 2003 01:23:43 GMT", 0, 29, STRICT, CLOCK));
+        assertEquals(NONE, millis("Fri, 02 Jan 2003 01:23:45 GMT", 0, 29, STRICT, CLOCK));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "0|0",
+            "7|7000",
+            "1.|1000",
+            "1.5|1500",
+            "1.05|1050",
+            "00.001|1",
+            "0.0009|0",
+            "2.9999|2999",
+            "86400.123456789|86400123",
+            "9223372036854775.807|9223372036854775807",
+            "9223372036854775.808|9223372036854775807",
+            "9223372036854776|9223372036854775807",
+            "99999999999999999999.5|9223372036854775807"
+    })
+    void testDecimal(final String header, final long milliseconds) {
+        assertEquals(milliseconds, decimal(header, 0, header.length()));
+    }
+
+    @Test
+    void testFixdateMatchesFormatter() {
+        final DateTimeFormatter canonical = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        // Step by a prime number of seconds to cover leap years, month ends and dates before the epoch
+        for (long t = -5_000_000_000L; t < 5_000_000_000L; t += 7_919_993L) {
+            final String header = canonical.format(Instant.ofEpochSecond(t).atZone(ZoneOffset.UTC));
+            final long expected = ZonedDateTime.parse(header, DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli();
+            assertEquals(expected, fixdate(header, 0, header.length()), header);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Thu, 2 Jan 2003 01:23:45 GMT",
+            "Thu, 02 Jan 2003 1:23:45 GMT",
+            "THU, 02 JAN 2003 01:23:45 GMT",
+            "Fri, 02 Jan 2003 01:23:45 GMT",
+            "Sat, 29 Feb 2003 01:23:45 GMT",
+            "Thu, 02 Jan 2003 24:00:00 GMT",
+            "Thu, 02 Jan 2003 01:60:45 GMT",
+            "Thu, 02 Jan 2003 01:23:60 GMT",
+            "Thu, 02 Xyz 2003 01:23:45 GMT"
+    })
+    void testFixdateFallback(final String header) {
+        assertEquals(NONE, fixdate(header, 0, header.length()));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "Thu, 02 Jan 2003 01:23:45 GMT|true",
+            "thu, 02 JAN 2003 01:23:45 GMT|true",
+            "Fri, 30 Feb 2003 01:23:45 GMT|true",
+            "Thu, 02 Jan 2003 24:00:00 GMT|true",
+            "2 Jan 2003 1:23 GMT|true",
+            "Fri, 02 Jan 2003 01:23:45 GMT|false",
+            "Xyz, 02 Jan 2003 01:23:45 GMT|false",
+            "Thu, 02 Xyz 2003 01:23:45 GMT|false",
+            "Thu, 32 Jan 2003 01:23:45 GMT|false",
+            "Thu, 02 Jan 2003 24:00:01 GMT|false",
+            "Thu, 02 Jan 2003 01:60:45 GMT|false",
+            "Thu, 02 Jan 2003 01:23:60 GMT|false",
+            "Thursday, 02-Jan-03 01:23:45 GMT|true",
+            "31-Apr-03 24:00 GMT|true",
+            "00-Jan-03 01:23 GMT|false",
+            "2-Jan-03 25:00 GMT|false",
+            "Thu Jan  2 01:23:45 2003|true",
+            "Jan 002 01:23 2003|true",
+            "Jan 32 01:23 2003|false",
+            "Jan 2 01:23:99 2003|false",
+            "2003-01-02T01:23:45Z|true",
+            "2003-13-02T01:23:45Z|false",
+            "2003-01-00T01:23:45Z|false",
+            "2003-01-02T24:00:00Z|false"
+    })
+    void testPlausible(final String header, final boolean plausible) {
+        final int format = recognize(header, EXTENDED);
+        assertEquals(plausible, plausible(format, header, 0, header.length()), header);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "Thu, 02 Jan 2003 01:23:45 UTC",
+            "Thursday, 02-Jan-03 01:23:45 XYZ",
+            "Fri Jan  2 01:23:45 2003",
+            "Thu Xyz  2 01:23:45 2003",
+            "Thursday, 02-Jan-03 01:23:45 GMTX"
+    })
+    void testRejectedByFormatter(final String header) {
+        assertEquals(NONE, millis(header, 0, header.length(), EXTENDED, CLOCK));
+    }
+
+    @Test
+    void testAdversarialShapes() {
+        // Shapes that make a backtracking matcher of the former guards retry each split of a long run
+        final String run = " ".repeat(1 << 16);
+        assertEquals(0, recognize("Thu" + run + "Jan" + run + "2", EXTENDED));
+        assertEquals(0, recognize("Thu Jan" + run + "2 01:23:45" + run + "200", EXTENDED));
+        assertEquals(0, recognize("x".repeat(1 << 16) + ", 02-Jan-03 01:23:45 ", EXTENDED));
+        assertEquals(0, recognize("02-Jan-03 01:23:45 " + "G".repeat(1 << 16) + "!", EXTENDED));
+        assertEquals(0, recognize("1".repeat(1 << 16) + "x", EXTENDED));
+        assertEquals(0, recognize("1." + "0".repeat(1 << 16) + "x", EXTENDED));
+    }
+
+    @Test
+    void testSecondsOverflow() {
+        final String header = "99999999999999999999";
+        assertEquals(NONE, millis(header, 0, header.length(), SECONDS, CLOCK));
+        assertEquals(NONE, seconds(header, 0, header.length()));
+        assertEquals(Long.MAX_VALUE, millis("9223372036854775807", 0, 19, SECONDS, CLOCK));
+        assertEquals(Long.MAX_VALUE, millis(header, 0, header.length(), ANY_SECONDS, CLOCK));
+    }
+}
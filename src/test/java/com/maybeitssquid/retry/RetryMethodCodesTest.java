@@ -0,0 +1,94 @@
+package com.maybeitssquid.retry;
+
+import com.maybeitssquid.retry.RetryMethodCodes.Method;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RetryMethodCodesTest {
+    private final HttpServletResponse response;
+
+    public RetryMethodCodesTest(@Mock HttpServletResponse response) {
+        this.response = response;
+    }
+
+    @Test
+    void testMethodNames() {
+        for (final Method method : Method.values()) {
+            if (method != Method.OTHER) assertEquals(method, Method.of(method.name()));
+        }
+        assertEquals(Method.OTHER, Method.of("get"));
+        assertEquals(Method.OTHER, Method.of("PROPFIND"));
+        assertEquals(Method.OTHER, Method.of(""));
+        assertEquals(Method.OTHER, Method.of(null));
+    }
+
+    @Test
+    void testStandard() {
+        final RetryMethodCodes standard = RetryMethodCodes.standard();
+        final RetryStatusCodes idempotent = RetryStatusCodes.idempotent();
+        final RetryStatusCodes nonIdempotent = RetryStatusCodes.nonIdempotent();
+        for (final Method method : Method.values()) {
+            final RetryStatusCodes expected = method.idempotent() ? idempotent : nonIdempotent;
+            for (int status = -1; status < 1000; status++) {
+                assertEquals(expected.retries(status), standard.retries(method, status), method + " " + status);
+            }
+        }
+        assertFalse(standard.retries(Method.GET, Integer.MIN_VALUE));
+        assertFalse(standard.retries(Method.GET, Integer.MAX_VALUE));
+
+        assertTrue(standard.retries("GET", 503));
+        assertTrue(standard.retries("DELETE", 503));
+        assertFalse(standard.retries("POST", 503));
+        assertFalse(standard.retries("PROPFIND", 503));
+        assertTrue(standard.retries("POST", 429));
+    }
+
+    @Test
+    void testWithMethod() {
+        final RetryStatusCodes only = RetryStatusCodes.only(500);
+        final RetryMethodCodes codes = RetryMethodCodes.standard().withMethod(Method.POST, only);
+        assertSame(only, codes.forMethod(Method.POST));
+        assertTrue(codes.retries(Method.POST, 500));
+        assertFalse(codes.retries(Method.POST, 503));
+        assertFalse(codes.retries(Method.PATCH, 500));
+        assertTrue(codes.retries(Method.GET, 503));
+
+        // The original is unchanged
+        assertFalse(RetryMethodCodes.standard().retries(Method.POST, 500));
+    }
+
+    @Test
+    void testOf() {
+        final RetryMethodCodes codes = RetryMethodCodes.of(RetryStatusCodes.only(503), RetryStatusCodes.only(429));
+        assertTrue(codes.retries(Method.HEAD, 503));
+        assertFalse(codes.retries(Method.HEAD, 429));
+        assertTrue(codes.retries(Method.CONNECT, 429));
+        assertFalse(codes.retries(Method.CONNECT, 503));
+        assertThrows(NullPointerException.class, () -> RetryMethodCodes.of(null, RetryStatusCodes.only()));
+    }
+
+    @Test
+    void testPredicate() {
+        final Method[] method = {Method.GET};
+        final Predicate<HttpServletResponse> predicate = RetryMethodCodes.standard().predicate(r -> method[0]);
+        when(response.getStatus()).thenReturn(500);
+        assertTrue(predicate.test(response));
+        method[0] = Method.POST;
+        assertFalse(predicate.test(response));
+
+        // An unknown method is treated as not idempotent
+        method[0] = null;
+        assertFalse(predicate.test(response));
+        when(response.getStatus()).thenReturn(429);
+        assertTrue(predicate.test(response));
+    }
+}
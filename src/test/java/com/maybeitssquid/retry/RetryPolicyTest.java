@@ -0,0 +1,123 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RetryPolicyTest {
+    private static final Duration TWO_SECONDS = Duration.ofSeconds(2L);
+
+    private final HttpServletResponse response;
+
+    public RetryPolicyTest(@Mock HttpServletResponse response) {
+        this.response = response;
+    }
+
+    @Test
+    void testUpdateCodes() {
+        final RetryPolicy policy = RetryPolicy.of(RetryStatusCodes.only(503));
+        assertEquals(Optional.empty(), policy.getMaximum());
+
+        when(response.getStatus()).thenReturn(500);
+        assertFalse(policy.test(response));
+
+        final RetryStatusCodes codes = RetryStatusCodes.only(500);
+        policy.updateCodes(codes);
+        assertSame(codes, policy.getCodes());
+        assertTrue(policy.test(response));
+        // Retried without reading the header, so the wait does not read it either
+        assertEquals(Optional.empty(), policy.waitFor(response));
+    }
+
+    @Test
+    void testUpdateMaximum() {
+        final RetryPolicy policy = RetryPolicy.of(RetryStatusCodes.only(503), TWO_SECONDS);
+        assertEquals(Optional.of(TWO_SECONDS), policy.getMaximum());
+
+        when(response.getStatus()).thenReturn(503);
+        when(response.getHeader("Retry-After")).thenReturn("3");
+        assertFalse(policy.test(response));
+
+        policy.updateMaximum(Duration.ofSeconds(5L));
+        assertTrue(policy.test(response));
+        assertEquals(Optional.of(Duration.ofSeconds(3L)), policy.waitFor(response));
+
+        // Without a maximum, the header is neither read nor heeded
+        policy.updateMaximum(null);
+        assertEquals(Optional.empty(), policy.getMaximum());
+        assertTrue(policy.test(response));
+        assertEquals(Optional.empty(), policy.waitFor(response));
+
+        // Changing the codes keeps the maximum
+        policy.update(RetryStatusCodes.only(503), TWO_SECONDS);
+        policy.updateCodes(RetryStatusCodes.only(503, 429));
+        assertEquals(Optional.of(TWO_SECONDS), policy.getMaximum());
+        assertFalse(policy.test(response));
+    }
+
+    @Test
+    void testWaitFollowsDecision() {
+        final RetryPolicy policy = RetryPolicy.of(RetryStatusCodes.only(503));
+        when(response.getStatus()).thenReturn(503);
+        when(response.getHeader("Retry-After")).thenReturn("86400");
+
+        // Retried without a maximum, then a maximum is set before the wait
+        assertTrue(policy.test(response));
+        policy.updateMaximum(Duration.ofSeconds(10L));
+        assertEquals(Optional.empty(), policy.waitFor(response));
+
+        // Without a remembered decision, the header is heeded only within the current maximum
+        assertEquals(Optional.of(Duration.ofSeconds(10L)), policy.waitFor(response));
+
+        // Retried within a maximum that is removed before the wait
+        when(response.getHeader("Retry-After")).thenReturn("3");
+        assertTrue(policy.test(response));
+        policy.updateMaximum(null);
+        assertEquals(Optional.of(Duration.ofSeconds(3L)), policy.waitFor(response));
+        assertEquals(Optional.empty(), policy.waitFor(response));
+    }
+
+    @Test
+    void testConcurrentUpdates() throws InterruptedException {
+        final RetryPolicy policy = RetryPolicy.of(RetryStatusCodes.only(503));
+        final RetryStatusCodes[] tables = {RetryStatusCodes.only(503), RetryStatusCodes.only(500, 503)};
+        final AtomicBoolean done = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(1);
+        final Thread updater = new Thread(() -> {
+            started.countDown();
+            for (int i = 0; !done.get(); i++) {
+                policy.updateCodes(tables[i & 1]);
+            }
+        });
+        updater.start();
+        started.await();
+        try {
+            // Every decision sees one table or the other, and 503 is retried by both
+            for (int i = 0; i < 100000; i++) {
+                assertTrue(policy.getCodes().retries(503));
+            }
+        } finally {
+            done.set(true);
+            updater.join();
+        }
+    }
+
+    @Test
+    void testRequiresCodes() {
+        assertThrows(NullPointerException.class, () -> RetryPolicy.of(null));
+        assertThrows(NullPointerException.class, () -> RetryPolicy.of(RetryStatusCodes.only(), null));
+        final RetryPolicy policy = RetryPolicy.of(RetryStatusCodes.only());
+        assertThrows(NullPointerException.class, () -> policy.updateCodes(null));
+    }
+}
@@ -6,7 +6,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -100,4 +104,60 @@ public class RetryStatusCodesTest {
         }
     }
 
+    @Test
+    void testOutOfRange() {
+        final RetryStatusCodes all = RetryStatusCodes.only(100, 163, 164, 227, 599);
+        // Codes past the end of the valid range but still inside the last word, and codes that alias a set bit
+        for (int status = 600; status < 1000; status++) {
+            assertFalse(all.retries(status), Integer.toString(status));
+        }
+        for (int status = -1000; status < 100; status++) {
+            assertFalse(all.retries(status), Integer.toString(status));
+        }
+        assertTrue(all.retries(100));
+        assertTrue(all.retries(163));
+        assertTrue(all.retries(164));
+        assertTrue(all.retries(227));
+        assertTrue(all.retries(599));
+        assertFalse(all.retries(228));
+        assertFalse(all.retries(100 + Integer.MIN_VALUE));
+
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> RetryStatusCodes.only(99));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> RetryStatusCodes.idempotent(600));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> RetryStatusCodes.nonIdempotent(-1));
+    }
+
+    @Test
+    void testSharedTables() {
+        final RetryStatusCodes.PoolReport before = RetryStatusCodes.poolReport();
+
+        final RetryStatusCodes first = RetryStatusCodes.idempotent(418);
+        final RetryStatusCodes second = RetryStatusCodes.idempotent(418);
+        assertNotSame(first, second);
+        assertSame(first.words(), second.words());
+        assertTrue(second.retries(418));
+
+        // Equal decisions share a table however they were created
+        assertSame(RetryStatusCodes.idempotent().words(), RetryStatusCodes.idempotent(503).words());
+        assertSame(RetryStatusCodes.only(418, 419).words(), RetryStatusCodes.only(419, 418).words());
+        assertNotSame(RetryStatusCodes.only(418).words(), RetryStatusCodes.only(419).words());
+        assertSame(first.words(), first.counted(new RetryStatusCounters()).words());
+
+        final RetryStatusCodes.PoolReport after = RetryStatusCodes.poolReport();
+        assertTrue(after.getTables() >= 3);
+        assertEquals(after.getTables() * 96L, after.getBytes());
+        assertTrue(after.getRequests() - before.getRequests() >= 7);
+        assertTrue(after.getShared() - before.getShared() >= 3);
+        assertEquals(after.getShared() * 96L, after.getSavedBytes());
+    }
+
+    @Test
+    void testRetryAfterStatuses() {
+        final RetryStatusCodes statuses = RetryStatusCodes.retryAfterStatuses();
+        for (int status = -1; status < 1000; status++) {
+            final boolean expected = status >= 300 && status < 400 || status == 429 || status == 503;
+            assertEquals(expected, statuses.retries(status), Integer.toString(status));
+        }
+    }
+
 }
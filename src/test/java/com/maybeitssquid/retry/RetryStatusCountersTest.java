@@ -0,0 +1,93 @@
+package com.maybeitssquid.retry;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RetryStatusCountersTest {
+    private final HttpServletResponse response;
+
+    public RetryStatusCountersTest(@Mock HttpServletResponse response) {
+        this.response = response;
+    }
+
+    @Test
+    void testCounted() {
+        final RetryStatusCounters counters = new RetryStatusCounters();
+        final RetryStatusCodes codes = RetryStatusCodes.idempotent().counted(counters);
+
+        when(response.getStatus()).thenReturn(503);
+        assertTrue(codes.test(response));
+        assertTrue(codes.test(response));
+        when(response.getStatus()).thenReturn(200);
+        assertFalse(codes.test(response));
+        when(response.getStatus()).thenReturn(-5);
+        assertFalse(codes.test(response));
+        when(response.getStatus()).thenReturn(700);
+        assertFalse(codes.test(response));
+
+        // Lookups by code are not counted
+        assertTrue(codes.retries(503));
+
+        final RetryStatusCounters.Snapshot snapshot = counters.snapshot();
+        assertEquals(Map.of(503, 2L), snapshot.getRetries());
+        assertEquals(Map.of(200, 1L, RetryStatusCounters.OUT_OF_RANGE, 2L), snapshot.getGiveUps());
+        assertEquals(RetryStatusCounters.OUT_OF_RANGE, (int) snapshot.getGiveUps().keySet().iterator().next());
+    }
+
+    @Test
+    void testOutOfRange() {
+        final RetryStatusCounters counters = new RetryStatusCounters();
+        for (final int code : new int[]{Integer.MIN_VALUE, -1, 0, 42, 99, 600, 639, 640, Integer.MAX_VALUE}) {
+            counters.record(code, false);
+        }
+        counters.record(100, false);
+        counters.record(599, false);
+        assertEquals(Map.of(RetryStatusCounters.OUT_OF_RANGE, 9L, 100, 1L, 599, 1L), counters.snapshot().getGiveUps());
+    }
+
+    @Test
+    void testReset() {
+        final RetryStatusCounters counters = new RetryStatusCounters();
+        counters.record(503, true);
+        counters.record(404, false);
+
+        final RetryStatusCounters.Snapshot first = counters.snapshotThenReset();
+        assertEquals(Map.of(503, 1L), first.getRetries());
+        assertEquals(Map.of(404, 1L), first.getGiveUps());
+        assertTrue(counters.snapshot().getRetries().isEmpty());
+
+        counters.record(503, true);
+        counters.reset();
+        assertTrue(counters.snapshot().getRetries().isEmpty());
+        assertTrue(counters.snapshot().getGiveUps().isEmpty());
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        final RetryStatusCounters counters = new RetryStatusCounters();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    counters.record(500 + (i & 3), (i & 1) == 0);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        final RetryStatusCounters.Snapshot snapshot = counters.snapshot();
+        assertEquals(Map.of(500, 10000L, 502, 10000L), snapshot.getRetries());
+        assertEquals(Map.of(501, 10000L, 503, 10000L), snapshot.getGiveUps());
+    }
+}
@@ -0,0 +1,77 @@
+package com.maybeitssquid.retry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SwarDigitsTest {
+
+    private static long parse(final String header) {
+        return SwarDigits.parse(header, 0, header.length());
+    }
+
+    private static long expected(final String header) {
+        for (int i = 0; i < header.length(); i++) {
+            if (header.charAt(i) < '0' || header.charAt(i) > '9') return -1L;
+        }
+        return Long.parseLong(header);
+    }
+
+    @Test
+    void testAllShortNumbers() {
+        for (int i = 0; i < 100000; i++) {
+            final String header = Integer.toString(i);
+            assertEquals(i, parse(header), header);
+            assertEquals(i, parse("0".repeat(8 - header.length()) + header), header);
+        }
+    }
+
+    @Test
+    void testRandomNumbers() {
+        final Random random = new Random(42L);
+        for (int i = 0; i < 100000; i++) {
+            final String header = Long.toString(random.nextInt(100000000));
+            assertEquals(expected(header), parse(header), header);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(chars = {'/', ':', ' ', '.', '-', 'a', '\u0000', '\u007f', '°', '¹', 'İ', '٠',
+            '０'})
+    void testRejectsEachPosition(final char bad) {
+        for (int length = 1; length <= SwarDigits.MAX_DIGITS; length++) {
+            for (int i = 0; i < length; i++) {
+                final char[] header = "12345678".substring(0, length).toCharArray();
+                header[i] = bad;
+                assertEquals(-1L, parse(new String(header)), new String(header));
+            }
+        }
+    }
+
+    @Test
+    void testBytes() {
+        final byte[] bytes = "xx12345678yy".getBytes(StandardCharsets.ISO_8859_1);
+        for (int start = 2; start < 10; start++) {
+            for (int end = start + 1; end <= 10; end++) {
+                final String digits = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+                final long value = Long.parseLong(digits);
+                // Read a word at a time from the middle, and a byte at a time at the end
+                assertEquals(value, SwarDigits.parse(AsciiSequence.of(bytes, 0, bytes.length), start, end));
+                assertEquals(value, SwarDigits.parse(AsciiSequence.of(bytes, start, end - start), 0, end - start));
+                final ByteBuffer big = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+                assertEquals(value, SwarDigits.parse(AsciiSequence.of(big), start, end));
+                final ByteBuffer little = big.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                assertEquals(value, SwarDigits.parse(AsciiSequence.of(little), start, end));
+            }
+        }
+        final byte[] high = {'1', (byte) 0xb1, '1'};
+        assertEquals(-1L, SwarDigits.parse(AsciiSequence.of(high, 0, high.length), 0, high.length));
+    }
+}
@@ -0,0 +1,57 @@
+package com.maybeitssquid.retry.resilience4j;
+
+import com.maybeitssquid.retry.RateLimit;
+import com.maybeitssquid.retry.RateLimitPacer;
+import io.github.resilience4j.core.functions.Either;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(MockitoExtension.class)
+public class HeedRateLimitTest {
+    private static final InstantSource CLOCK = InstantSource.fixed(Instant.parse("2003-01-02T01:23:45Z"));
+    private static final Either<Throwable, HttpServletResponse> LEFT = Either.left(new Exception("test"));
+
+    private final RateLimit[] limit = {null};
+    private final RateLimitPacer pacer = RateLimitPacer.of(r -> Optional.ofNullable(limit[0]), 0.2, CLOCK);
+    private final Either<Throwable, HttpServletResponse> result;
+
+    public HeedRateLimitTest(@Mock final HttpServletResponse response) {
+        this.result = Either.right(response);
+    }
+
+    @Test
+    void testHeed() {
+        final HeedRateLimit test = HeedRateLimit.heed((t, u) -> 500L, this.pacer);
+        assertEquals(500L, test.apply(1, LEFT));
+        assertEquals(500L, test.apply(1, this.result));
+
+        this.limit[0] = new RateLimit(50L, 100L, 10000L);
+        assertEquals(500L, test.apply(1, this.result));
+
+        this.limit[0] = new RateLimit(4L, 100L, 10000L);
+        assertEquals(2000L, test.apply(1, this.result));
+
+        this.limit[0] = new RateLimit(0L, 100L, 10000L);
+        assertEquals(10000L, test.apply(1, this.result));
+        assertEquals(500L, test.apply(1, LEFT));
+    }
+
+    @Test
+    void testNullWrapped() {
+        final HeedRateLimit test = HeedRateLimit.heed((t, u) -> null, this.pacer);
+        assertNull(test.apply(1, this.result));
+
+        this.limit[0] = new RateLimit(4L, 100L, 10000L);
+        assertEquals(2000L, test.apply(1, this.result));
+    }
+}
@@ -1,5 +1,7 @@
 package com.maybeitssquid.retry.resilience4j;
 
+import com.maybeitssquid.retry.RetryAfterMemo;
+import com.maybeitssquid.retry.RetryAfterParser;
 import io.github.resilience4j.core.IntervalBiFunction;
 import io.github.resilience4j.core.functions.Either;
 import jakarta.servlet.http.HttpServletResponse;
@@ -9,6 +11,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -37,6 +40,7 @@ public class HeedRetryAfterTest {
     }
 
     void testWithHeader(final HeedRetryAfter test, final long expected, final String header) {
+        when(this.response.getStatus()).thenReturn(503);
         when(this.response.getHeader("Retry-After")).thenReturn(header);
         assertEquals(expected, test.apply(1, this.result));
     }
@@ -88,6 +92,7 @@ public class HeedRetryAfterTest {
     @Test
     void testExtending() {
         final HeedRetryAfter test = HeedRetryAfter.heed(wrapped);
+        when(this.response.getStatus()).thenReturn(503);
         when(this.wrapped.apply(1, LEFT)).thenReturn(LIMIT);
         when(this.wrapped.apply(1, this.result)).thenReturn(LIMIT);
         when(this.wrapped.apply(1, this.result)).thenReturn(LIMIT);
@@ -125,4 +130,42 @@ public class HeedRetryAfterTest {
         assertEquals(1000L, test.apply(1, this.result));
     }
 
+    @Test
+    void testMemo() {
+        final RetryAfterMemo memo = RetryAfterMemo.of(RetryAfterParser.extended());
+        final HeedRetryAfter test = new HeedRetryAfter((t, u) -> 0L, memo);
+        when(this.response.getStatus()).thenReturn(503);
+
+        when(this.response.getHeader("Retry-After")).thenReturn("2");
+        assertEquals(2000L, memo.remember(this.response));
+        // The header changes, but the remembered result for the response is used once
+        when(this.response.getHeader("Retry-After")).thenReturn("3");
+        assertEquals(2000L, test.apply(1, this.result));
+        assertEquals(3000L, test.apply(1, this.result));
+    }
+
+    @Test
+    void testStatuses() {
+        final int[] parses = {0};
+        final HeedRetryAfter test = new HeedRetryAfter((t, u) -> 500L, r -> {
+            parses[0]++;
+            return Optional.of(Duration.ofSeconds(3L));
+        });
+
+        // The header is not read for statuses that do not carry it
+        when(this.response.getStatus()).thenReturn(500);
+        assertEquals(500L, test.apply(1, this.result));
+        assertEquals(0, parses[0]);
+
+        when(this.response.getStatus()).thenReturn(503);
+        assertEquals(3000L, test.apply(1, this.result));
+        assertEquals(1, parses[0]);
+
+        final HeedRetryAfter custom = new HeedRetryAfter((t, u) -> 500L, r -> Optional.of(Duration.ofSeconds(3L)),
+                status -> status == 500);
+        assertEquals(500L, custom.apply(1, this.result));
+        when(this.response.getStatus()).thenReturn(500);
+        assertEquals(3000L, custom.apply(1, this.result));
+    }
+
 }
@@ -1,5 +1,10 @@
 package com.maybeitssquid.retry.resilience4j;
 
+import com.maybeitssquid.retry.RateLimit;
+import com.maybeitssquid.retry.RateLimitPacer;
+import com.maybeitssquid.retry.RetryMethodCodes;
+import com.maybeitssquid.retry.RetryPolicy;
+import com.maybeitssquid.retry.RetryStatusCodes;
 import io.github.resilience4j.core.IntervalBiFunction;
 import io.github.resilience4j.core.functions.Either;
 import io.github.resilience4j.retry.RetryConfig;
@@ -10,6 +15,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
+import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -63,8 +69,8 @@ public class RetryTest {
         assertFalse(predicate.test(this.response));
     }
 
-    private void testPredicateWait(final Predicate<HttpServletResponse> predicate) {
-        when(response.getStatus()).thenReturn(TEST_CODE);
+    private void testPredicateWait(final Predicate<HttpServletResponse> predicate, final int status) {
+        when(response.getStatus()).thenReturn(status);
         when(response.getHeader("Retry-After")).thenReturn("0");
         assertTrue(predicate.test(this.response));
         when(response.getHeader("Retry-After")).thenReturn("1");
@@ -104,7 +110,7 @@ public class RetryTest {
         final RetryConfig config = build(idempotent(TEST_MAXIMUM, TEST_CODE));
         final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
         testPredicateCodes(predicate);
-        testPredicateWait(predicate);
+        testPredicateWait(predicate, TEST_CODE);
         final IntervalBiFunction<HttpServletResponse> biFunction = validatedBiFunction(config);
     }
 
@@ -113,7 +119,7 @@ public class RetryTest {
         final RetryConfig config = build(nonIdempotent(TEST_MAXIMUM, TEST_CODE));
         final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
         testPredicateCodes(predicate);
-        testPredicateWait(predicate);
+        testPredicateWait(predicate, TEST_CODE);
         final IntervalBiFunction<HttpServletResponse> biFunction = validatedBiFunction(config);
     }
 
@@ -122,7 +128,7 @@ public class RetryTest {
         final RetryConfig config = build(onlyCodes(TEST_MAXIMUM, TEST_CODE));
         final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
         testPredicateCodes(predicate);
-        testPredicateWait(predicate);
+        testPredicateWait(predicate, TEST_CODE);
         final IntervalBiFunction<HttpServletResponse> biFunction = validatedBiFunction(config);
     }
 
@@ -130,6 +136,7 @@ public class RetryTest {
     void testUnlimitedWait() {
         final RetryConfig config = build(retryAfter());
         assertNull(config.getResultPredicate());
+        when(response.getStatus()).thenReturn(503);
         final IntervalBiFunction<HttpServletResponse> biFunction = validatedBiFunction(config);
     }
 
@@ -137,8 +144,72 @@ public class RetryTest {
     void testLimitedWait() {
         final RetryConfig config = build(retryAfter(TEST_MAXIMUM));
         final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
-        testPredicateWait(predicate);
+        testPredicateWait(predicate, 503);
         final IntervalBiFunction<HttpServletResponse> biFunction = validatedBiFunction(config);
    }
 
+    @Test
+    void testMethods() {
+        final RetryMethodCodes.Method[] method = {RetryMethodCodes.Method.GET};
+        final RetryConfig config = build(methods(RetryMethodCodes.standard(), r -> method[0]));
+        final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
+
+        when(response.getStatus()).thenReturn(503);
+        assertTrue(predicate.test(this.response));
+        method[0] = RetryMethodCodes.Method.POST;
+        assertFalse(predicate.test(this.response));
+    }
+
+    @Test
+    void testMethodsWithMaximum() {
+        final RetryMethodCodes.Method[] method = {RetryMethodCodes.Method.PUT};
+        final RetryConfig config = build(methods(TEST_MAXIMUM, RetryMethodCodes.standard(), r -> method[0]));
+        final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
+        testPredicateWait(predicate, 503);
+
+        // The header of a response that is not retried is not read
+        method[0] = RetryMethodCodes.Method.POST;
+        assertFalse(predicate.test(this.response));
+
+        method[0] = RetryMethodCodes.Method.PUT;
+        final IntervalBiFunction<HttpServletResponse> biFunction = validatedBiFunction(config);
+    }
+
+    @Test
+    void testPolicy() {
+        final RetryPolicy policy = RetryPolicy.of(RetryStatusCodes.only(TEST_CODE));
+        final RetryConfig config = build(policy(policy));
+        final Predicate<HttpServletResponse> predicate = validatedPredicate(config);
+        testPredicateCodes(predicate);
+
+        // The header is not heeded until there is a maximum
+        when(response.getStatus()).thenReturn(TEST_CODE);
+        final IntervalBiFunction<HttpServletResponse> biFunction = config.getIntervalBiFunction();
+        assertEquals(DEFAULT_WAIT_DURATION, biFunction.apply(1, Either.right(this.response)));
+
+        policy.updateMaximum(TEST_MAXIMUM);
+        testPredicateWait(predicate, TEST_CODE);
+        when(response.getHeader("Retry-After")).thenReturn("1");
+        assertTrue(predicate.test(this.response));
+        assertEquals(1000L, biFunction.apply(1, Either.right(this.response)));
+
+        // A wait follows the version of the policy that decided the retry
+        when(response.getHeader("Retry-After")).thenReturn("86400");
+        policy.updateMaximum(null);
+        assertTrue(predicate.test(this.response));
+        policy.updateMaximum(TEST_MAXIMUM);
+        assertEquals(DEFAULT_WAIT_DURATION, biFunction.apply(1, Either.right(this.response)));
+    }
+
+    @Test
+    void testRateLimit() {
+        final RateLimitPacer pacer = RateLimitPacer.of(r -> Optional.of(new RateLimit(0L, 100L, 60000L)));
+        final RetryConfig config = build(rateLimit(pacer));
+        assertNull(config.getResultPredicate());
+        final IntervalBiFunction<HttpServletResponse> biFunction = config.getIntervalBiFunction();
+        assertEquals(DEFAULT_WAIT_DURATION, biFunction.apply(1, Either.left(new Throwable())));
+        final long wait = biFunction.apply(1, Either.right(this.response));
+        assertTrue(wait > 59000L && wait <= 60000L);
+    }
+
 }